@@ -17,19 +17,94 @@
 package com.bdb.piglow4j;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.pi4j.io.i2c.I2CBus;
-import com.pi4j.io.i2c.I2CDevice;
-import com.pi4j.io.i2c.I2CFactory;
-import com.pi4j.system.SystemInfo;
-
 /**
  *
  * @author Bruce
  */
 public final class PiGlow {
+    /**
+     * A set of LED intensity changes that are written to the PiGlow together. The changes are collected by the caller and
+     * are written with a single block write that covers only the changed LEDs, followed by a single commit.
+     * A batch can be reused after it is committed, but it must not be shared between threads.
+     * <br>
+     * A batch is not coordinated with an animator. An animator that is running can overwrite the changes with its own
+     * output in the middle of a step, so LEDs that are driven by an animator should be changed by an animation instead.
+     *
+     * @see com.bdb.piglow4j.PiGlow#batch(java.util.function.Consumer)
+     */
+    public final class Batch {
+        private final int values[] = new int[PIGLOW_LED_COUNT];
+        private int changedMask;
+
+        /**
+         * Constructor.
+         */
+        private Batch() {
+            changedMask = 0;
+        }
+
+        /**
+         * Add an intensity change to this batch. If the same LED is changed more than once, the last change is used.
+         *
+         * @param led The LED whose intensity is to be changed
+         * @param intensity The new intensity
+         * @return This batch
+         * @throws IllegalArgumentException The intensity is out of range
+         */
+        public Batch setIntensity(PiGlowLED led, int intensity) throws IllegalArgumentException {
+            if (intensity < PiGlowLED.MIN_INTENSITY || intensity > PiGlowLED.MAX_INTENSITY)
+                throw new IllegalArgumentException("Intensity must be from " + PiGlowLED.MIN_INTENSITY + " to " + PiGlowLED.MAX_INTENSITY);
+
+            int index = led.getAddress() - FIRST_LED_ADDR;
+            values[index] = intensity;
+            changedMask |= 1 << index;
+            return this;
+        }
+
+        /**
+         * Add an intensity change for a list of LEDs to this batch.
+         *
+         * @param leds The LEDs whose intensity is to be changed
+         * @param intensity The new intensity
+         * @return This batch
+         * @throws IllegalArgumentException The intensity is out of range
+         */
+        public Batch setIntensity(Iterable<PiGlowLED> leds, int intensity) throws IllegalArgumentException {
+            for (PiGlowLED led : leds)
+                setIntensity(led, intensity);
+
+            return this;
+        }
+
+        /**
+         * Discard the changes in this batch.
+         */
+        public void clear() {
+            changedMask = 0;
+        }
+
+        /**
+         * Write the changes in this batch to the PiGlow and clear the batch. If the write fails the changes are kept, so
+         * the batch can be committed again.
+         *
+         * @throws IOException Failed to write to the Raspberry Pi I2C
+         */
+        public void commit() throws IOException {
+            commitBatch(values, changedMask);
+            changedMask = 0;
+        }
+    }
+
     /**
      * The number of LEDs that are on the PiGlow
      */
@@ -41,72 +116,194 @@ public final class PiGlow {
     private static final int ENABLE_LEFT_ARM_ADDR = 0x14;
     private static final int ENABLE_RIGHT_ARM_ADDR = 0x15;
     private static final int COMMIT_ADDR = 0x16;
-    private static final int I2C_ADDR = 0x54;
     private static final byte VALUE = (byte)0xFF;
+    private static final int UNDETECTED_BUS = -1;
+    private static final int BUS_0 = 0;
+    private static final int BUS_1 = 1;
+    private static final String BUS_PROPERTY = "piglow4j.i2c.bus";
+    private static final String TRANSPORT_PROPERTY = "piglow4j.transport";
+    private static final String DEFAULT_TRANSPORTS[] = {"pi4j", "dev-i2c"};
+    private static final Path CPU_INFO = Paths.get("/proc/cpuinfo");
     private static final byte ALL_OFF[] = {0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0};
-    private I2CBus bus;
-    private I2CDevice device;
+    private PiGlowTransport transport;
     private final byte[] intensities;
-    private static final PiGlow instance;
-    private static boolean initialized;
+    private final byte[] deviceIntensities;
+    private final int[] highResolutionIntensities;
+    private final PiGlowDither dither;
+    private boolean ditheringEnabled;
+    private boolean deviceIntensitiesValid;
+    private static volatile boolean initialized = false;
+    private static boolean shutdownHookRegistered = false;
+    private static int busNumber = UNDETECTED_BUS;
+    private static PiGlowTransport configuredTransport;
     private static final Logger logger = Logger.getLogger(PiGlow.class.getName());
 
-    static {
-        initialized = false;
-        instance = new PiGlow();
+    /**
+     * Holds the singleton so that it is not created until it is first used.
+     */
+    private static final class Holder {
+        private static final PiGlow INSTANCE = new PiGlow();
     }
 
     /**
      * Singleton factory method to get the PiGlow.
      * 
-     * @return The PiGlow singleton
+     * @return The PiGlow singleton or null if the PiGlow could not be initialized
      */
     public static PiGlow getInstance() {
-        if (!initialized && !instance.initialize())
-            return null;
-        else {
+        if (initialized)
+            return Holder.INSTANCE;
+
+        synchronized (PiGlow.class) {
+            if (!initialized && !Holder.INSTANCE.initialize())
+                return null;
+
             initialized = true;
-            return instance;
+            return Holder.INSTANCE;
         }
     }
 
     /**
-     * Constructor.
+     * Set the number of the I2C bus the PiGlow is attached to, skipping the detection of the board type. This has no
+     * effect once the PiGlow has been initialized. The bus can also be set with the <code>piglow4j.i2c.bus</code> system property.
+     *
+     * @param bus The I2C bus number
+     */
+    public static synchronized void setBusNumber(int bus) {
+        if (bus < 0)
+            throw new IllegalArgumentException("Bus number cannot be negative");
+
+        busNumber = bus;
+    }
+
+    /**
+     * Set the transport used by the singleton, instead of one found by <code>ServiceLoader</code>. This has no effect once
+     * the PiGlow has been initialized.
+     *
+     * @param transport The transport
+     */
+    public static synchronized void setTransport(PiGlowTransport transport) {
+        configuredTransport = transport;
+    }
+
+    /**
+     * Get the number of the I2C bus the PiGlow is attached to. The bus is detected the first time this is called and the
+     * result is kept, so later calls do not read the system information again.
+     *
+     * @return The I2C bus number
+     */
+    public static synchronized int getBusNumber() {
+        if (busNumber == UNDETECTED_BUS)
+            busNumber = detectBusNumber();
+
+        return busNumber;
+    }
+
+    /**
+     * Constructor for the singleton, whose transport is opened when it is initialized.
      */
     private PiGlow() {
+        this(null);
+    }
+
+    /**
+     * Constructor for a PiGlow that is driven through a custom transport instead of the one chosen for the singleton.
+     * The LED state is static and shared by every instance, so this does not give a second, independent board; all
+     * instances show the same LEDs. The outputs are not turned on until <code>reset()</code> is called.
+     *
+     * @param transport The transport to the PiGlow
+     */
+    public PiGlow(PiGlowTransport transport) {
+        this.transport = transport;
         intensities = new byte[PIGLOW_LED_COUNT];
+        deviceIntensities = new byte[PIGLOW_LED_COUNT];
+        highResolutionIntensities = new int[PIGLOW_LED_COUNT];
+        dither = new PiGlowDither();
+        ditheringEnabled = false;
+        deviceIntensitiesValid = false;
     }
 
     /**
-     * This method fixes a bug in pi4j that does not report the board type correctly for RPi 2 Rev B.
-     * This method can be delete when the pi4j code is fixed.
-     * 
-     * @return The board type
+     * Determine the I2C bus from the system property or, if it is not set, from the board revision. Only the original
+     * Model B revision 1 boards use bus 0. Every later board, including all of those with the newer revision scheme, uses bus 1.
+     * The revision is read from /proc/cpuinfo directly, as the pi4j system information starts a process for each query.
+     *
+     * @return The I2C bus number
      */
-    private SystemInfo.BoardType getBoardType() {
+    private static int detectBusNumber() {
+        String property = System.getProperty(BUS_PROPERTY);
+        if (property != null) {
+            try {
+                return Integer.parseInt(property.trim());
+            }
+            catch (NumberFormatException e) {
+                logger.log(Level.WARNING, "Ignoring invalid {0} property \"{1}\"", new Object[]{BUS_PROPERTY, property});
+            }
+        }
+
         try {
-            String revision = SystemInfo.getRevision();
-            long irevision = Long.parseLong(revision, 16);
-            long scheme = (irevision >> 23) & 0x1;
-            long ram = (irevision >> 20) & 0x7;
-            long manufacturer = (irevision >> 16) & 0xF;
-            long processor = (irevision >> 12) & 0xF;
-            long type = (irevision >> 4) & 0xFF;
-            long rev = irevision & 0xF;
+            for (String line : Files.readAllLines(CPU_INFO)) {
+                if (!line.startsWith("Revision"))
+                    continue;
 
-            logger.fine(String.format("Board Revision: Scheme: %d RAM: %d Manufacturer %d Processor: %d Type: %d Revision: %d",
-                                      scheme, ram, manufacturer, processor, type, rev));
-            if (scheme == 0)
-                return SystemInfo.getBoardType();
-            else if (type == 4)
-                return SystemInfo.BoardType.Model2B_Rev1;
-            else
-                return SystemInfo.BoardType.UNKNOWN;
+                long revision = Long.parseLong(line.substring(line.indexOf(':') + 1).trim(), 16);
+                long scheme = (revision >> 23) & 0x1;
+                long code = revision & 0xFFFF;
+                logger.log(Level.FINE, "Board revision {0}", Long.toHexString(revision));
+                if (scheme == 0 && (code == 0x2 || code == 0x3))
+                    return BUS_0;
+                else
+                    return BUS_1;
+            }
         }
-        catch (IOException | InterruptedException ex) {
-            logger.severe("Failed to determine Raspberry Pi board type");
-            return SystemInfo.BoardType.UNKNOWN;
+        catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to read the board revision", e);
         }
+
+        //
+        // There is no revision when running the simulator on a machine other than a Raspberry Pi
+        //
+        logger.fine("Board revision not found, using I2C bus 1");
+        return BUS_1;
+    }
+
+    /**
+     * Open the transport named by the system property or, if it is not set, the first of the default transports that is
+     * available. Providers that cannot be loaded, for example because pi4j is not on the class path, are skipped.
+     *
+     * @param bus The I2C bus number
+     * @return The transport
+     * @throws IOException No transport is available or it failed to open
+     */
+    private static PiGlowTransport openTransport(int bus) throws IOException {
+        String requested = System.getProperty(TRANSPORT_PROPERTY);
+        String names[] = requested != null ? new String[]{requested.trim()} : DEFAULT_TRANSPORTS;
+        PiGlowTransportProvider providers[] = new PiGlowTransportProvider[names.length];
+
+        Iterator<PiGlowTransportProvider> iterator = ServiceLoader.load(PiGlowTransportProvider.class, PiGlow.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext())
+                    break;
+
+                PiGlowTransportProvider provider = iterator.next();
+                for (int i = 0; i < names.length; i++)
+                    if (providers[i] == null && names[i].equals(provider.getName()))
+                        providers[i] = provider;
+            }
+            catch (ServiceConfigurationError | LinkageError e) {
+                logger.log(Level.FINE, "Skipping PiGlow transport provider", e);
+            }
+        }
+
+        for (PiGlowTransportProvider provider : providers) {
+            if (provider != null && provider.isAvailable(bus)) {
+                logger.log(Level.FINE, "Using the {0} transport on bus {1}", new Object[]{provider.getName(), bus});
+                return provider.open(bus);
+            }
+        }
+
+        throw new IOException("No PiGlow transport available, tried " + String.join(", ", names));
     }
 
     /**
@@ -115,38 +312,64 @@ public final class PiGlow {
      * @return True of the PiGlow initialized successfully
      */
     private boolean initialize() {
-        Runtime.getRuntime().addShutdownHook(new Thread(()->allOff()));
-        SystemInfo.BoardType boardType = getBoardType();
-        int busNumber;
-        switch (boardType) {
-            case ModelA_Rev1:
-            case ModelB_Rev1:
-            case ModelB_Rev2:
-                busNumber = I2CBus.BUS_0;
-                break;
-
-            default: // Not needed for an enum
-            case ModelA_Plus_Rev1:
-            case ModelB_Plus_Rev1:
-            case Model2B_Rev1:
-                busNumber = I2CBus.BUS_1;
-                break;
-        }
-
         try {
-            bus = I2CFactory.getInstance(busNumber);
-            device = bus.getDevice(I2C_ADDR);
-
-            device.write(ENABLE_OUTPUT_ADDR, ENABLE_OUTPUT);
-            device.write(ENABLE_TOP_ARM_ADDR, VALUE);
-            device.write(ENABLE_LEFT_ARM_ADDR, VALUE);
-            device.write(ENABLE_RIGHT_ARM_ADDR, VALUE);
-            return true;
+            transport = configuredTransport != null ? configuredTransport : openTransport(getBusNumber());
+            enableOutputs();
         }
         catch (IOException e) {
             logger.log(Level.SEVERE, "Failed to initialize the PiGlow", e);
             return false;
         }
+
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(()->allOff()));
+            shutdownHookRegistered = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * Write the registers that turn on the PiGlow outputs.
+     *
+     * @throws IOException Failed to write to the Raspberry Pi I2C
+     */
+    private void enableOutputs() throws IOException {
+        transport.write(ENABLE_OUTPUT_ADDR, ENABLE_OUTPUT);
+        transport.write(ENABLE_TOP_ARM_ADDR, VALUE);
+        transport.write(ENABLE_LEFT_ARM_ADDR, VALUE);
+        transport.write(ENABLE_RIGHT_ARM_ADDR, VALUE);
+    }
+
+    /**
+     * Turn the PiGlow outputs back on and force the next call to <code>updateLEDs()</code> to write every LED. This is used
+     * to recover after the board has lost power and returned to its reset state, in which all outputs are disabled.
+     *
+     * @throws IOException Failed to write to the Raspberry Pi I2C
+     */
+    public synchronized void reset() throws IOException {
+        deviceIntensitiesValid = false;
+        enableOutputs();
+    }
+
+    /**
+     * Set whether the high resolution LED intensities are dithered down to the 8 bits supported by the PiGlow.
+     * Dithering is only effective if the LEDs are updated at a high fixed rate, see <code>PiGlowAnimator.setFrameInterval()</code>.
+     *
+     * @param enabled True if dithering should be used
+     */
+    public synchronized void setDithering(boolean enabled) {
+        ditheringEnabled = enabled;
+        dither.reset();
+    }
+
+    /**
+     * Return whether the high resolution LED intensities are being dithered.
+     *
+     * @return True if dithering is enabled
+     */
+    public synchronized boolean isDithering() {
+        return ditheringEnabled;
     }
 
     /**
@@ -154,8 +377,8 @@ public final class PiGlow {
      * 
      * @throws IOException Error writing to the I2C device
      */
-    public void commit() throws IOException {
-        device.write(COMMIT_ADDR, VALUE);
+    public synchronized void commit() throws IOException {
+        transport.write(COMMIT_ADDR, VALUE);
     }
 
     /**
@@ -167,33 +390,159 @@ public final class PiGlow {
      * @throws IOException Failed to write to the Raspberry Pi I2C
      * @throws IllegalArgumentException The intensity is out of range
      */
-    public void setLEDIntensity(PiGlowLED led, int intensity) throws IOException, IllegalArgumentException {
+    public synchronized void setLEDIntensity(PiGlowLED led, int intensity) throws IOException, IllegalArgumentException {
         led.setIntensity(intensity);
-        device.write(led.getAddress(), (byte)intensity);
+        byte value = (byte)led.getIntensity();
+        transport.write(led.getAddress(), value);
+        deviceIntensities[led.getAddress() - FIRST_LED_ADDR] = value;
         commit();
     }
 
     /**
-     * Write the new LED intensities to the PiGlow.
+     * Start a batch of LED changes. Nothing is written until the batch is committed.
+     *
+     * @return The new batch
+     */
+    public Batch beginBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Make a set of LED changes that are written to the PiGlow together. For example:
+     * <pre>
+     * piGlow.batch((b) -&gt; b.setIntensity(PiGlowLED.armLEDs(PiGlowArm.TOP), 255).setIntensity(redLED, 0));
+     * </pre>
+     *
+     * @param changes Function that adds the changes to the batch
+     * @throws IOException Failed to write to the Raspberry Pi I2C
+     * @throws IllegalArgumentException An intensity is out of range, in which case nothing is written
+     */
+    public void batch(Consumer<Batch> changes) throws IOException, IllegalArgumentException {
+        Batch batch = new Batch();
+        changes.accept(batch);
+        batch.commit();
+    }
+
+    /**
+     * Write the changed LEDs of a batch. The LED objects are updated as well so that the next call to
+     * <code>updateLEDs()</code> writes the same intensities.
+     *
+     * @param values The intensities indexed by the LED address
+     * @param mask Bit mask of the changed LEDs, indexed by the LED address
+     * @throws IOException Failed to write to the Raspberry Pi I2C
+     */
+    private synchronized void commitBatch(int values[], int mask) throws IOException {
+        int first = -1;
+        int last = -1;
+
+        //
+        // Start with what is on the device so that the unchanged LEDs in the middle of the block are written with
+        // their current values
+        //
+        if (deviceIntensitiesValid)
+            System.arraycopy(deviceIntensities, 0, intensities, 0, PIGLOW_LED_COUNT);
+        else {
+            for (int i = 0; i < PIGLOW_LED_COUNT; i++)
+                intensities[i] = (byte)PiGlowLED.addressList[i].getIntensity();
+        }
+
+        for (int i = 0; i < PIGLOW_LED_COUNT; i++) {
+            if ((mask & (1 << i)) == 0)
+                continue;
+
+            PiGlowLED led = PiGlowLED.addressList[i];
+            led.setIntensity(values[i]);
+            intensities[i] = (byte)led.getIntensity();
+            if (!deviceIntensitiesValid || intensities[i] != deviceIntensities[i]) {
+                if (first < 0)
+                    first = i;
+
+                last = i;
+            }
+        }
+
+        if (first < 0)
+            return;
+
+        //
+        // If the write or the commit fails it is not known what the device holds, so a retry writes every changed LED
+        //
+        try {
+            transport.write(FIRST_LED_ADDR + first, intensities, first, last - first + 1);
+            System.arraycopy(intensities, first, deviceIntensities, first, last - first + 1);
+            commit();
+        }
+        catch (IOException e) {
+            deviceIntensitiesValid = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Write the new LED intensities to the PiGlow. Nothing is written if none of the intensities have changed since the
+     * last write.
      * 
      * @throws IOException Failed to write to the Raspberry Pi I2C
      */
-    public void updateLEDs() throws IOException {
-        logger.fine("Updating the LED intensities");
-        PiGlowLED.allLEDs().forEach((led) -> intensities[led.getAddress() - FIRST_LED_ADDR] = (byte)led.getIntensity());
+    public synchronized void updateLEDs() throws IOException {
+        if (ditheringEnabled) {
+            for (int i = 0; i < PIGLOW_LED_COUNT; i++)
+                highResolutionIntensities[i] = PiGlowLED.addressList[i].getHighResolutionIntensity();
 
-        device.write(FIRST_LED_ADDR, intensities, 0, intensities.length);
-        commit();
+            dither.dither(highResolutionIntensities, intensities);
+        }
+        else {
+            for (int i = 0; i < PIGLOW_LED_COUNT; i++)
+                intensities[i] = (byte)PiGlowLED.addressList[i].getIntensity();
+        }
+
+        writeFrame();
+    }
+
+    /**
+     * Write a frame of register values directly to the PiGlow, bypassing the LED objects. The values are written as is,
+     * so they must already be gamma corrected if that is desired. Nothing is written if the frame is the same as the last
+     * frame that was written.
+     *
+     * @param frame The buffer containing the intensities of the 18 LEDs in PiGlow address order
+     * @param offset The offset of the first intensity within the buffer
+     * @throws IOException Failed to write to the Raspberry Pi I2C
+     */
+    public synchronized void writeFrame(byte frame[], int offset) throws IOException {
+        System.arraycopy(frame, offset, intensities, 0, PIGLOW_LED_COUNT);
+        writeFrame();
+    }
+
+    /**
+     * Write the intensity buffer to the PiGlow if it differs from what was last written.
+     *
+     * @throws IOException Failed to write to the Raspberry Pi I2C
+     */
+    private void writeFrame() throws IOException {
+        boolean changed = !deviceIntensitiesValid;
+        for (int i = 0; i < PIGLOW_LED_COUNT && !changed; i++)
+            changed = intensities[i] != deviceIntensities[i];
+
+        if (!changed)
+            return;
+
+        transport.writeFrame(intensities, 0);
+        System.arraycopy(intensities, 0, deviceIntensities, 0, PIGLOW_LED_COUNT);
+        deviceIntensitiesValid = true;
     }
 
     /**
      * Turn off all of the LEDs
      */
-    public void allOff() {
+    public synchronized void allOff() {
         logger.fine("Turning all off");
+        if (transport == null)
+            return;
+
         try {
-            device.write(FIRST_LED_ADDR, ALL_OFF, 0, ALL_OFF.length);
-            commit();
+            transport.writeFrame(ALL_OFF, 0);
+            System.arraycopy(ALL_OFF, 0, deviceIntensities, 0, PIGLOW_LED_COUNT);
+            deviceIntensitiesValid = true;
 	    PiGlowLED.allLEDs().forEach((led) -> led.setIntensity(0));
         }
         catch (IOException ex) {
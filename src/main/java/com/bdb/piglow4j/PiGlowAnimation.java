@@ -31,6 +31,8 @@ public abstract class PiGlowAnimation {
     public static final long ANIMATION_COMPLETE = -1;
     private boolean isEnabled = true;
     private final List<PiGlowLED> managedLEDs = new ArrayList<>(18);
+    private PiGlowLatePolicy latePolicy = PiGlowLatePolicy.SKIP;
+    private long skippedSteps;
 
     /**
      * Returns whether this animation is currently enabled.
@@ -73,6 +75,45 @@ public abstract class PiGlowAnimation {
 	}
     }
 
+    /**
+     * Get how the animation should handle steps that were missed because it ran late. This is set by the animator that
+     * runs the animation.
+     *
+     * @return The late policy
+     */
+    protected final PiGlowLatePolicy getLatePolicy() {
+        return latePolicy;
+    }
+
+    /**
+     * Record steps that were skipped because the animation ran late.
+     *
+     * @param steps The number of steps that were skipped
+     */
+    protected final void addSkippedSteps(long steps) {
+        skippedSteps += steps;
+    }
+
+    /**
+     * Set the late policy, called by the animator before each step.
+     *
+     * @param policy The late policy of the animator
+     */
+    final void setLatePolicy(PiGlowLatePolicy policy) {
+        latePolicy = policy;
+    }
+
+    /**
+     * Get the number of steps skipped since the last call and clear the count.
+     *
+     * @return The number of skipped steps
+     */
+    final long takeSkippedSteps() {
+        long steps = skippedSteps;
+        skippedSteps = 0;
+        return steps;
+    }
+
     /**
      * Initialize any counters or times that are needed to track the animation.
      * 
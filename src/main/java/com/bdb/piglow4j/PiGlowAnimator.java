@@ -17,11 +17,19 @@
 package com.bdb.piglow4j;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,6 +37,22 @@ import java.util.logging.Logger;
  * A class that controls one or more animations. This class uses an <code>Executor</code> to schedule animation updates.
  * Multiple animators can be active simultaneously, but the effects are unpredictable as the animators are not synchronized.
  * Though possible, it is not recommended.
+ * <br>
+ * By default each animator creates its own single threaded executor when it is started. Applications that run a large
+ * number of animators should create one shared scheduler with <code>createScheduler()</code> (or supply any other
+ * <code>ScheduledExecutorService</code>, such as one backed by virtual threads on newer JDKs) and pass it to each animator.
+ * A shared scheduler is never shut down by the animators that use it.
+ * <br>
+ * Animations can be added, removed or replaced from any thread while the animator is running. The list of animations is
+ * copied on each change so the animation steps never need to lock it.
+ * <br>
+ * The whole set of animations can be swapped with <code>swapAnimations()</code>. The new animations are initialized by the
+ * caller and switched in by the next step, optionally crossfading from the last frame that was written. A
+ * <code>PiGlowInterpolator</code> can also be set to smooth the changes made by animations that only step occasionally.
+ * <br>
+ * A failure to write to the PiGlow does not stop the animator. The write is retried a few times within a small time
+ * budget, after which the animator keeps running the animations while it backs off. Each later attempt first resets the
+ * PiGlow, in case the board lost power, and then writes the complete frame.
  * 
  * @see java.util.concurrent.ScheduledExecutorService
  * @see com.bdb.piglow4j.PiGlowAnimation
@@ -36,30 +60,432 @@ import java.util.logging.Logger;
  * @author Bruce Beisel
  */
 public final class PiGlowAnimator implements Runnable {
+    /**
+     * A set of animations waiting to be switched in by the next step.
+     */
+    private static final class Swap {
+        private final PiGlowAnimation[] animations;
+        private final long crossfadeMillis;
+
+        Swap(PiGlowAnimation[] animations, long crossfadeMillis) {
+            this.animations = animations;
+            this.crossfadeMillis = crossfadeMillis;
+        }
+    }
+
+    private final ScheduledExecutorService sharedScheduler;
     private ScheduledExecutorService executor;
-    private final List<PiGlowAnimation> animations;
+    private final AtomicReference<ScheduledFuture<?>> future;
+    private final ReentrantLock stepLock;
+    private final AtomicLong stepTicket;
+    private volatile boolean wakeUpRequested;
+    private volatile boolean running;
+    private CountDownLatch terminationLatch;
+    private volatile PiGlowAnimation[] animations;
     private final PiGlow piGlow;
     private final PiGlowLED.Cache cache;
+    private volatile Swap pendingSwap;
+    private final PiGlowLED.Cache fadeFrom;
+    private final PiGlowLED.Cache outputTarget;
+    private volatile PiGlowInterpolator interpolator;
+    private volatile PiGlowTrace trace;
+    private volatile PiGlowLatePolicy latePolicy;
+    private volatile long skippedStepCount;
+    private final PiGlowLED.Cache fadeOutput;
+    private long fadeStartTime;
+    private long fadeMillis;
+    private long frameInterval;
+    private int writeRetries;
+    private long writeRetryBudget;
+    private long maxWriteBackoff;
+    private int consecutiveWriteFailures;
+    private long writeFailureStartTime;
+    private long nextWriteAttemptTime;
+    private volatile long writeFailureCount;
+    private volatile long writeRecoveryCount;
+    private volatile long lastRecoveryMillis;
+    private volatile long maxRecoveryMillis;
+    private static final long INITIAL_WRITE_BACKOFF = 10;
+    private static final long CROSSFADE_FRAME_INTERVAL = 20;
+    private static final int WARM_UP_BATCH = 1000;
+    private static final AtomicInteger threadCount = new AtomicInteger();
     private static final Logger logger = Logger.getLogger(PiGlowAnimator.class.getName());
 
     /**
-     * Constructor.
+     * Constructor for an animator that runs on its own thread.
      * 
      * @param piGlow The PiGlow being animated
      */
     public PiGlowAnimator(PiGlow piGlow) {
-        animations = new ArrayList<>();
+        this(piGlow, null);
+    }
+
+    /**
+     * Constructor for an animator that runs on a scheduler that may be shared with other animators.
+     * 
+     * @param piGlow The PiGlow being animated
+     * @param scheduler The scheduler on which the animation steps run, or null to create a scheduler when started
+     */
+    public PiGlowAnimator(PiGlow piGlow, ScheduledExecutorService scheduler) {
+        animations = new PiGlowAnimation[0];
+        future = new AtomicReference<>();
+        stepLock = new ReentrantLock();
+        stepTicket = new AtomicLong();
         this.piGlow = piGlow;
+        this.sharedScheduler = scheduler;
 	cache = PiGlowLED.createCache();
+        fadeFrom = PiGlowLED.createCache();
+        outputTarget = PiGlowLED.createCache();
+        fadeOutput = PiGlowLED.createCache();
+        frameInterval = 0;
+        latePolicy = PiGlowLatePolicy.SKIP;
+        writeRetries = 2;
+        writeRetryBudget = 5;
+        maxWriteBackoff = 1000;
+        running = false;
+        terminationLatch = new CountDownLatch(0);
+    }
+
+    /**
+     * Create a scheduler that can be shared by any number of animators.
+     *
+     * @param threads The number of threads in the scheduler's pool
+     * @return The scheduler, which is owned by the caller
+     */
+    public static ScheduledExecutorService createScheduler(int threads) {
+        ThreadFactory factory = (runnable) -> {
+            Thread thread = new Thread(runnable, "PiGlowAnimator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(threads, factory);
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Set a fixed interval at which the LEDs are written while any animation is active. By default the LEDs are only
+     * written when an animation changes. A fixed interval is needed when the PiGlow is dithering the high resolution
+     * intensities.
+     *
+     * @param millis The interval between frames or 0 to only write frames when an animation changes
+     *
+     * @see com.bdb.piglow4j.PiGlow#setDithering(boolean)
+     */
+    public void setFrameInterval(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("Frame interval cannot be negative");
+
+        frameInterval = millis;
+    }
+
+    /**
+     * Set how the animations handle steps that were missed because the animator ran late. The default is to skip the
+     * missed steps.
+     *
+     * @param policy The late policy
+     */
+    public void setLatePolicy(PiGlowLatePolicy policy) {
+        if (policy == null)
+            throw new IllegalArgumentException("Late policy cannot be null");
+
+        latePolicy = policy;
+    }
+
+    /**
+     * Get the number of animation steps that were skipped because the animator ran late.
+     *
+     * @return The number of skipped steps
+     */
+    public long getSkippedStepCount() {
+        return skippedStepCount;
+    }
+
+    /**
+     * Set the interpolator that smooths the changes made by the animations before they are written to the PiGlow.
+     *
+     * @param interpolator The interpolator or null to write the output of the animations directly
+     */
+    public void setInterpolator(PiGlowInterpolator interpolator) {
+        if (interpolator != null)
+            interpolator.reset();
+
+        this.interpolator = interpolator;
     }
 
     /**
-     * Add animation.
+     * Set the trace in which the steps, writes and scheduling decisions of this animator are recorded. The trace is
+     * dumped to the log when an animation throws an exception or a write fails. A trace must not be shared between
+     * animators, as it only supports a single writer.
+     *
+     * @param trace The trace or null to stop tracing
+     */
+    public void setTrace(PiGlowTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Set how failed writes to the PiGlow are handled.
+     *
+     * @param retries The number of times a failed write is retried immediately
+     * @param retryBudgetMillis The maximum time spent on the immediate retries of one frame
+     * @param maxBackoffMillis The maximum time between write attempts when the writes keep failing
+     */
+    public void setWriteRetryPolicy(int retries, long retryBudgetMillis, long maxBackoffMillis) {
+        if (retries < 0 || retryBudgetMillis < 0 || maxBackoffMillis < INITIAL_WRITE_BACKOFF)
+            throw new IllegalArgumentException("Invalid write retry policy");
+
+        writeRetries = retries;
+        writeRetryBudget = retryBudgetMillis;
+        maxWriteBackoff = maxBackoffMillis;
+    }
+
+    /**
+     * Get the number of frames that could not be written to the PiGlow. A frame is counted once, however many times
+     * it was retried.
+     *
+     * @return The number of failed frames
+     */
+    public long getWriteFailureCount() {
+        return writeFailureCount;
+    }
+
+    /**
+     * Get the number of times that writing to the PiGlow recovered after failing.
+     *
+     * @return The number of recoveries
+     */
+    public long getWriteRecoveryCount() {
+        return writeRecoveryCount;
+    }
+
+    /**
+     * Get how long the most recent write failure lasted, from the first failed frame to the first successful one.
+     *
+     * @return The time to recover in milliseconds
+     */
+    public long getLastRecoveryMillis() {
+        return lastRecoveryMillis;
+    }
+
+    /**
+     * Get the longest time it took to recover from a write failure.
+     *
+     * @return The time to recover in milliseconds
+     */
+    public long getMaxRecoveryMillis() {
+        return maxRecoveryMillis;
+    }
+
+    /**
+     * Add animation. If the animator is running the animation is initialized and scheduled immediately.
      * 
      * @param animation The animation to add
      */
     public void addAnimation(PiGlowAnimation animation) {
-        animations.add(animation);
+        synchronized (this) {
+            if (running)
+                animation.initialize(System.currentTimeMillis());
+
+            PiGlowAnimation[] current = animations;
+            PiGlowAnimation[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = animation;
+            animations = updated;
+        }
+
+        animationsChanged();
+    }
+
+    /**
+     * Remove an animation. The LEDs of the animation are left at their current intensities.
+     *
+     * @param animation The animation to remove
+     * @return True if the animation was being run by this animator
+     */
+    public boolean removeAnimation(PiGlowAnimation animation) {
+        synchronized (this) {
+            PiGlowAnimation[] current = animations;
+            int index = indexOf(current, animation);
+            if (index < 0)
+                return false;
+
+            PiGlowAnimation[] updated = new PiGlowAnimation[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            animations = updated;
+        }
+
+        animationsChanged();
+        return true;
+    }
+
+    /**
+     * Replace an animation with another one. The replacement runs in the same position, so it is layered the same way
+     * as the animation it replaces. If the animator is running the replacement is initialized and scheduled immediately.
+     *
+     * @param oldAnimation The animation being replaced
+     * @param newAnimation The animation that replaces it
+     * @return True if the old animation was found and replaced
+     */
+    public boolean replaceAnimation(PiGlowAnimation oldAnimation, PiGlowAnimation newAnimation) {
+        synchronized (this) {
+            PiGlowAnimation[] current = animations;
+            int index = indexOf(current, oldAnimation);
+            if (index < 0)
+                return false;
+
+            if (running)
+                newAnimation.initialize(System.currentTimeMillis());
+
+            PiGlowAnimation[] updated = current.clone();
+            updated[index] = newAnimation;
+            animations = updated;
+        }
+
+        animationsChanged();
+        return true;
+    }
+
+    /**
+     * Replace all of the animations at once. If the animator is running the new animations are initialized by the calling
+     * thread and then switched in at the start of the next step, which runs immediately. The LEDs can crossfade from the
+     * last frame that was written to the output of the new animations, during which frames are written at the frame
+     * interval, or every 20 milliseconds if there is none.
+     * <br>
+     * LEDs that are not changed by the new animations keep their current intensities.
+     *
+     * @param newAnimations The animations that replace the current ones
+     * @param crossfadeMillis The length of the crossfade or 0 to switch immediately
+     */
+    public void swapAnimations(List<PiGlowAnimation> newAnimations, long crossfadeMillis) {
+        if (crossfadeMillis < 0)
+            throw new IllegalArgumentException("Crossfade time cannot be negative");
+
+        PiGlowAnimation[] updated = newAnimations.toArray(new PiGlowAnimation[newAnimations.size()]);
+
+        //
+        // Initializing the animations here keeps any expensive setup off the thread running the steps
+        //
+        if (running) {
+            long now = System.currentTimeMillis();
+            for (PiGlowAnimation animation : updated)
+                animation.initialize(now);
+        }
+
+        synchronized (this) {
+            if (running)
+                pendingSwap = new Swap(updated, crossfadeMillis);
+            else {
+                pendingSwap = null;
+                animations = updated;
+            }
+        }
+
+        animationsChanged();
+    }
+
+    /**
+     * Switch in the animations from <code>swapAnimations()</code>. This is called at the start of a step so that the LEDs
+     * still hold the last frame that was written.
+     *
+     * @param now The current time
+     */
+    private void applyPendingSwap(long now) {
+        Swap swap;
+        synchronized (this) {
+            swap = pendingSwap;
+            if (swap == null)
+                return;
+
+            pendingSwap = null;
+            animations = swap.animations;
+        }
+
+        if (swap.crossfadeMillis > 0) {
+            //
+            // A crossfade that is still in progress has written a mix, not the LEDs, so fade from that mix instead
+            //
+            if (fadeMillis > 0)
+                fadeFrom.copy(fadeOutput);
+            else
+                fadeFrom.refresh();
+
+            fadeStartTime = now;
+            fadeMillis = swap.crossfadeMillis;
+        }
+        else
+            fadeMillis = 0;
+    }
+
+    /**
+     * Get the animations that are currently being run.
+     *
+     * @return An unmodifiable list of the animations
+     */
+    public List<PiGlowAnimation> getAnimations() {
+        return Collections.unmodifiableList(Arrays.asList(animations));
+    }
+
+    private static int indexOf(PiGlowAnimation[] list, PiGlowAnimation animation) {
+        for (int i = 0; i < list.length; i++)
+            if (list[i] == animation)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * Let the running animation steps know that the set of animations has changed.
+     */
+    private void animationsChanged() {
+        wakeUp();
+    }
+
+    /**
+     * Run the next step now instead of waiting for the scheduled time. If a step is currently running the request is
+     * left for that step, which schedules its successor immediately.
+     */
+    private void wakeUp() {
+        wakeUpRequested = true;
+        wakeUpIfRequested();
+    }
+
+    /**
+     * Replace the scheduled step with one that runs immediately, or finish the animator if it has been stopped, if a
+     * wake up was requested and no step is running. A step that is running holds the step lock, so it either sees the
+     * request when it schedules the next step or handles it here after releasing the lock. A step that was cancelled
+     * after it started finds that its ticket is no longer current and does nothing.
+     */
+    private void wakeUpIfRequested() {
+        while (wakeUpRequested && !stepLock.isHeldByCurrentThread() && stepLock.tryLock()) {
+            try {
+                wakeUpRequested = false;
+                ScheduledFuture<?> scheduled = future.get();
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                    if (running)
+                        schedule(0);
+                    else {
+                        stepTicket.incrementAndGet();
+                        finish();
+                    }
+                }
+            }
+            finally {
+                stepLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Schedule a step with a new ticket, which makes any step that was scheduled before it stale.
+     *
+     * @param millis The delay before the step runs
+     */
+    private void schedule(long millis) {
+        long ticket = stepTicket.incrementAndGet();
+        future.set(executor.schedule(() -> runStep(ticket), millis, TimeUnit.MILLISECONDS));
     }
 
     /**
@@ -68,29 +494,47 @@ public final class PiGlowAnimator implements Runnable {
      * @return True if the animator is running
      */
     public boolean isRunning() {
-        if (executor == null)
-            return false;
-        else
-            return !executor.isTerminated();
+        return terminationLatch.getCount() > 0;
     }
 
     /**
-     * Start the animation.
+     * Start the animation. An animator that has stopped can be started again, which restarts all of its animations.
      */
-    public void start() {
-        executor = Executors.newSingleThreadScheduledExecutor();
+    public synchronized void start() {
+        if (isRunning()) {
+            logger.warning("Animator is already running");
+            return;
+        }
+
+        if (sharedScheduler != null)
+            executor = sharedScheduler;
+        else
+            executor = createScheduler(1);
+
+        Swap swap = pendingSwap;
+        if (swap != null) {
+            animations = swap.animations;
+            pendingSwap = null;
+        }
+
+        fadeMillis = 0;
+        terminationLatch = new CountDownLatch(1);
+        running = true;
         long now = System.currentTimeMillis();
 	logger.log(Level.FINE, "Starting animation at {0}", now);
-        animations.forEach((animation)->animation.initialize(now));
+        for (PiGlowAnimation animation : animations)
+            animation.initialize(now);
+
 	scheduleNextStep(now);
     }
 
     /**
-     * Stop the animation, finishing any outstanding LED changes.
+     * Stop the animation, finishing any outstanding LED changes. If a step is in progress the animator terminates when
+     * that step is done.
      */
     public void stop() {
-        if (executor != null)
-            executor.shutdown();
+        running = false;
+        wakeUp();
     }
 
     /**
@@ -101,10 +545,27 @@ public final class PiGlowAnimator implements Runnable {
      * @throws InterruptedException If the wait is interrupted
      */
     public void waitForTermination(long millis) throws InterruptedException {
-        if (executor != null && !executor.awaitTermination(millis, TimeUnit.MILLISECONDS))
-	    logger.warning("Timed out waiting for executor termination");
+        long start = System.currentTimeMillis();
+        if (!terminationLatch.await(millis, TimeUnit.MILLISECONDS))
+	    logger.warning("Timed out waiting for animator termination");
+        else if (sharedScheduler == null) {
+            ScheduledExecutorService ownExecutor = executor;
+            long remaining = Math.max(0, millis - (System.currentTimeMillis() - start));
+            if (ownExecutor != null && !ownExecutor.awaitTermination(remaining, TimeUnit.MILLISECONDS))
+                logger.warning("Timed out waiting for executor termination");
+        }
+    }
+
+    /**
+     * Mark the animator as terminated and release the executor if this animator owns it.
+     */
+    private synchronized void finish() {
+        running = false;
+        future.set(null);
+        if (sharedScheduler == null && executor != null)
+            executor.shutdown();
 
-        executor = null;
+        terminationLatch.countDown();
     }
 
     /**
@@ -125,45 +586,268 @@ public final class PiGlowAnimator implements Runnable {
 		millis = Math.min(millis, nextStepMillis);
         }
 
-	logger.log(Level.FINER, "Next step in {0} milliseconds", millis);
-
         //
         // If the millis was never set then all of the animations have completed
         //
-        if (millis == Long.MAX_VALUE)
-	    executor.shutdown();
-	else if (millis == 0)
-	    executor.execute(this); // The next change is now
+        if (millis != Long.MAX_VALUE && frameInterval > 0)
+            millis = Math.min(millis, frameInterval);
+
+        //
+        // A crossfade continues even if the new animations have completed
+        //
+        if (fadeMillis > 0)
+            millis = Math.min(millis, frameInterval > 0 ? frameInterval : CROSSFADE_FRAME_INTERVAL);
+
+        //
+        // The interpolator keeps writing frames until the LEDs reach the last keyframe
+        //
+        PiGlowInterpolator stage = interpolator;
+        if (stage != null && stage.isInterpolating(now))
+            millis = Math.min(millis, stage.getOutputInterval());
+
+        //
+        // The animations changed while the step was running, so the step that was just computed may be too late
+        //
+        if (wakeUpRequested) {
+            wakeUpRequested = false;
+            millis = 0;
+        }
+
+        //
+        // A frame that could not be written must be written even when all of the animations are done
+        //
+        if (consecutiveWriteFailures > 0)
+            millis = Math.min(millis, Math.max(nextWriteAttemptTime - now, 0));
+
+        boolean finishing = millis == Long.MAX_VALUE || !running;
+        PiGlowTrace t = trace;
+        if (t != null)
+            t.record(PiGlowTrace.Event.SCHEDULE, finishing ? -1 : millis, now);
+
+        if (finishing)
+	    finish();
 	else
-	    executor.schedule(this, millis, TimeUnit.MILLISECONDS);
+	    schedule(Math.max(millis, 0));
     }
 
     /**
-     * Called by the executor when the scheduled timer is triggered.
+     * Run the step that is currently scheduled now. The scheduled step becomes stale and does nothing when it triggers.
      */
     @Override
     public void run() {
+        runStep(stepTicket.get());
+    }
+
+    /**
+     * Called by the executor when the scheduled timer is triggered. Only one step runs at a time, and a step whose
+     * ticket has been replaced by a later one does nothing, so there is never more than one chain of steps.
+     *
+     * @param ticket The ticket that was assigned when the step was scheduled
+     */
+    private void runStep(long ticket) {
+        stepLock.lock();
         try {
-            long now = System.currentTimeMillis();
-            //
-            // Tell each animation what the current time is
-            //
-	    for (PiGlowAnimation animation : animations) {
-		cache.refresh();
-		animation.executeNextStep(now);
+            if (ticket != stepTicket.get())
+                return;
 
-		if (!animation.isEnabled())
-	           cache.apply();
-	    }
+            if (!running) {
+                finish();
+                return;
+            }
 
-            //
-            // Change the actual LEDs
-            //
-            piGlow.updateLEDs();
+            long now = System.currentTimeMillis();
+            step(now);
             scheduleNextStep(now);
         }
-        catch (IOException e) {
+        catch (RuntimeException e) {
             logger.log(Level.SEVERE, "Animation generated an exception", e);
+            dumpTrace();
+            finish();
+        }
+        finally {
+            stepLock.unlock();
+        }
+
+        wakeUpIfRequested();
+    }
+
+    /**
+     * Perform one step of the animations and write the result.
+     *
+     * @param now The current time
+     */
+    void step(long now) {
+        PiGlowTrace t = trace;
+        if (t != null)
+            t.record(PiGlowTrace.Event.STEP, now, animations.length);
+
+        applyPendingSwap(now);
+
+        //
+        // Tell each animation what the current time is
+        //
+        PiGlowLatePolicy policy = latePolicy;
+        for (PiGlowAnimation animation : animations) {
+            cache.refresh();
+            animation.setLatePolicy(policy);
+            animation.executeNextStep(now);
+            long skipped = animation.takeSkippedSteps();
+            if (skipped > 0)
+                skippedStepCount += skipped;
+
+            if (!animation.isEnabled())
+                cache.apply();
         }
+
+        //
+        // Change the actual LEDs
+        //
+        writeOutput(now);
+    }
+
+    /**
+     * Run the animation and write paths for a while against a PiGlow that discards its output, so that they have been
+     * compiled by the JIT before the first real frame. The steps run back to back on a simulated clock, one millisecond
+     * apart. The LED intensities are restored afterwards. As the LEDs are shared, this
+     * must be called before any animator is started.
+     *
+     * @param millis The real time to spend warming up in milliseconds
+     * @return The number of steps that were run
+     */
+    public static long warmUp(long millis) {
+        PiGlowLED.Cache saved = PiGlowLED.createCache();
+        PiGlowAnimator animator = new PiGlowAnimator(new PiGlow(new PiGlowNullTransport()));
+        List<PiGlowLED> leds = PiGlowLED.allLEDs();
+        PiGlowSequence sequence = new PiGlowSequence(Integer.MAX_VALUE);
+        for (PiGlowLED led : leds)
+            sequence.addSequence(1, led, led.getAddress() * 10);
+
+        animator.addAnimation(new PiGlowBlinker(0, 0, 64, 0, 255, 51, true, true, Integer.MAX_VALUE, PiGlowLED.armLEDs(PiGlowArm.TOP)));
+        animator.addAnimation(sequence);
+        animator.addAnimation(new PiGlowTimeFunctionAnimation(new PiGlowBlinkerDefinition(0, 0, 30, 0, 255, 15, false, true, Integer.MAX_VALUE, PiGlowLED.armLEDs(PiGlowArm.RIGHT)).asTimeFunction()));
+
+        long now = 0;
+        for (PiGlowAnimation animation : animator.animations)
+            animation.initialize(now);
+
+        //
+        // The interpolator is switched on and off often so that the compiled code covers both paths and is not thrown away
+        // when the real animator takes the other one
+        //
+        PiGlowInterpolator interpolator = new PiGlowInterpolator(PiGlowInterpolator.Curve.EASE_IN_OUT, 20, 1);
+        long steps = 0;
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < end) {
+            animator.setInterpolator(animator.interpolator == null ? interpolator : null);
+            for (int i = 0; i < WARM_UP_BATCH; i++)
+                animator.step(now++);
+
+            steps += WARM_UP_BATCH;
+        }
+
+        saved.apply();
+        logger.log(Level.FINE, "Warmed up with {0} steps", steps);
+        return steps;
+    }
+
+    /**
+     * Write the output of the animations after passing it through the output stages. The crossfade mixes the frame from
+     * before the last swap with the frame from the current animations and the interpolator smooths the changes between
+     * frames. The LEDs are restored afterwards so that the animations continue from their own intensities.
+     *
+     * @param now The current time
+     */
+    private void writeOutput(long now) {
+        PiGlowInterpolator stage = interpolator;
+        boolean crossfading = fadeMillis > 0 && now - fadeStartTime < fadeMillis;
+        if (!crossfading)
+            fadeMillis = 0;
+
+        if (!crossfading && stage == null) {
+            writeLEDs(now);
+            return;
+        }
+
+        outputTarget.refresh();
+        if (crossfading) {
+            int weight = (int)(((now - fadeStartTime) << 16) / fadeMillis);
+            outputTarget.blend(fadeFrom, weight);
+            fadeOutput.refresh();
+        }
+
+        //
+        // An interpolated frame that looks the same as the last one is not written, unless the PiGlow is dithering or the
+        // last write failed
+        //
+        boolean changed = stage == null || stage.render(now);
+        if (changed || piGlow.isDithering() || consecutiveWriteFailures > 0)
+            writeLEDs(now);
+
+        outputTarget.apply();
+    }
+
+    /**
+     * Write the LEDs to the PiGlow, retrying and keeping track of the failures. While the writes keep failing the PiGlow
+     * is not touched until the backoff time has passed, which doubles after each failed frame up to the maximum backoff.
+     * The animations keep running in the meantime and the frame that is written next is the latest one.
+     *
+     * @param now The current time
+     */
+    private void writeLEDs(long now) {
+        if (consecutiveWriteFailures > 0 && now < nextWriteAttemptTime)
+            return;
+
+        PiGlowTrace t = trace;
+        long deadline = now + writeRetryBudget;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                long start = t != null ? System.nanoTime() : 0;
+                if (consecutiveWriteFailures > 0)
+                    piGlow.reset();
+
+                piGlow.updateLEDs();
+                if (t != null)
+                    t.record(PiGlowTrace.Event.WRITE, System.nanoTime() - start, attempt);
+
+                if (consecutiveWriteFailures > 0) {
+                    long recoveryMillis = System.currentTimeMillis() - writeFailureStartTime;
+                    lastRecoveryMillis = recoveryMillis;
+                    maxRecoveryMillis = Math.max(maxRecoveryMillis, recoveryMillis);
+                    writeRecoveryCount++;
+                    consecutiveWriteFailures = 0;
+                    logger.log(Level.INFO, "Writing to the PiGlow recovered after {0} milliseconds", recoveryMillis);
+                }
+
+                return;
+            }
+            catch (IOException e) {
+                if (t != null)
+                    t.record(PiGlowTrace.Event.WRITE_FAILURE, attempt, consecutiveWriteFailures);
+
+                if (attempt < writeRetries && System.currentTimeMillis() < deadline)
+                    continue;
+
+                if (consecutiveWriteFailures == 0) {
+                    writeFailureStartTime = now;
+                    logger.log(Level.SEVERE, "Failed to write to the PiGlow", e);
+                    dumpTrace();
+                }
+
+                writeFailureCount++;
+                consecutiveWriteFailures++;
+                long backoff = INITIAL_WRITE_BACKOFF << Math.min(consecutiveWriteFailures - 1, 20);
+                nextWriteAttemptTime = now + Math.min(backoff, maxWriteBackoff);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write the contents of the trace, if there is one, to the log.
+     */
+    private void dumpTrace() {
+        PiGlowTrace t = trace;
+        if (t != null)
+            logger.log(Level.SEVERE, "Animator trace, newest record last:\n{0}", t);
     }
 }
@@ -16,7 +16,6 @@
  */
 package com.bdb.piglow4j;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,25 +26,21 @@ import java.util.List;
  * @author Bruce Beisel
  */
 public final class PiGlowBlinker extends PiGlowAnimation {
-    private final int delay;
-    private final int repetitionDelay;
-    private final int stepInterval;    // The interval between intensity steps
-    private final int lowIntensity;
-    private final int highIntensity;
-    private final int blinkDuration;
-    private final int steps;
-    private final boolean lowToHigh;
-    private final boolean reverse;
-    private final int repetitions;
+    private final PiGlowBlinkerDefinition definition;
     private final List<PiGlowLED> leds;
+    private long startTime;
+    private long nextFrame;
 
-    private int currentStep = 0;
-    private int frame;
-    private int currentIntensity;
-    private long nextStepTime;
-    private int deltaIntensity;
-    private int initialIntensity;
-    private int count;
+    /**
+     * Constructor that plays a definition, which may be shared with other blinkers.
+     *
+     * @param definition The definition of the blink
+     */
+    public PiGlowBlinker(PiGlowBlinkerDefinition definition) {
+        this.definition = definition;
+        this.leds = definition.getLEDs();
+        this.addManagedLEDs(leds);
+    }
 
     /**
      * Constructor.
@@ -62,18 +57,7 @@ public final class PiGlowBlinker extends PiGlowAnimation {
      * @param leds The list of LEDs that will be animated
      */
     public PiGlowBlinker(int delayMillis, int repetitionDelayMillis, int blinkDuration, int lowIntensity, int highIntensity, int steps, boolean lowToHigh, boolean reverse, int repetitions, List<PiGlowLED> leds) {
-        this.delay = delayMillis;
-        this.repetitionDelay = repetitionDelayMillis;
-        this.blinkDuration = blinkDuration;
-        this.stepInterval = blinkDuration / steps;
-        this.lowIntensity = lowIntensity;
-        this.highIntensity = highIntensity;
-        this.steps = steps;
-        this.lowToHigh = lowToHigh;
-        this.reverse = reverse;
-        this.repetitions = repetitions;
-        this.leds = new ArrayList<>(leds);
-	this.addManagedLEDs(leds);
+        this(new PiGlowBlinkerDefinition(delayMillis, repetitionDelayMillis, blinkDuration, lowIntensity, highIntensity, steps, lowToHigh, reverse, repetitions, leds));
     }
 
     /**
@@ -137,32 +121,27 @@ public final class PiGlowBlinker extends PiGlowAnimation {
         this(delayMillis, blinkInterval, lowIntensity, highIntensity, repetitions, Arrays.asList(led));
     }
 
+    /**
+     * Get the definition this blinker plays.
+     *
+     * @return The definition
+     */
+    public PiGlowBlinkerDefinition getDefinition() {
+        return definition;
+    }
+
     @Override
     public void initialize(long now) {
-        nextStepTime = now + delay;
-        currentStep = 0;
-	count = 0;
-        frame = 0;
-
-        deltaIntensity = (highIntensity - lowIntensity) / steps;
-
-        if (lowToHigh) {
-            initialIntensity = lowIntensity;
-        }
-        else {
-            initialIntensity = highIntensity;
-            deltaIntensity = -deltaIntensity;
-        }
-
-        currentIntensity = initialIntensity;
+        startTime = now + definition.getDelay();
+        nextFrame = 0;
     }
 
     @Override
     public long nextStepMillis(long now) {
-	if (count >= repetitions)
+	if (nextFrame >= definition.getTotalFrames())
 	    return PiGlowAnimation.ANIMATION_COMPLETE;
 	else
-	    return nextStepTime - now;
+	    return startTime + definition.frameOffset(nextFrame) - now;
     }
 
     @Override
@@ -170,41 +149,40 @@ public final class PiGlowBlinker extends PiGlowAnimation {
         //
         // Do nothing if the time of the next change has not been reached yet
         //
-        if (now < nextStepTime)
+        if (nextFrame >= definition.getTotalFrames() || now < startTime + definition.frameOffset(nextFrame))
             return;
 
-        //
-        // Set the intensities for the LEDs in this animation
-        //
-        leds.forEach((led) -> led.setIntensity(currentIntensity));
+        long frame = nextFrame;
+        switch (getLatePolicy()) {
+            case SKIP:
+                frame = Math.max(nextFrame, definition.frameAt(now - startTime));
+                addSkippedSteps(frame - nextFrame);
+                break;
 
-        //
-        // Calculate the intensities and time for the next step
-        //
-        currentStep++;
-        if (reverse) {
-            if (currentStep <= steps)
-                frame++;
-            else
-                frame--;
-        }
-        else
-            frame++;
+            case STRETCH:
+                startTime = now - definition.frameOffset(nextFrame);
+                break;
 
+            default:
+                break;
+        }
 
         //
-        // Figure out if the animation cycle has finished and needs to be restarted
+        // Set the intensities for the LEDs in this animation
         //
-        if ((reverse && frame == 0) || (!reverse && frame > steps)) {
-            currentStep = 0;
-            frame = 0;
-            count++;
-            nextStepTime = nextStepTime + repetitionDelay;
-            currentIntensity = initialIntensity;
-        }
-        else {
-            nextStepTime += stepInterval;
-            currentIntensity = initialIntensity + (frame * deltaIntensity);
-        }
+        int intensity = definition.intensityOf(frame);
+        for (PiGlowLED led : leds)
+            led.setIntensity(intensity);
+        nextFrame = frame + 1;
+    }
+
+    /**
+     * Create a time function that calculates the same frames as this blinker. The function shares nothing with the
+     * animation, so both can be used at the same time.
+     *
+     * @return The time function
+     */
+    public PiGlowTimeFunction asTimeFunction() {
+        return definition.asTimeFunction();
     }
 }
\ No newline at end of file
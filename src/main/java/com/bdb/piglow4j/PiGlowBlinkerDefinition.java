@@ -0,0 +1,200 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The immutable description of a blink: its timing, intensities and LEDs. A definition holds no runtime state, so one
+ * definition can be shared by any number of <code>PiGlowBlinker</code>s, <code>PiGlowBlinkerFleet</code>s and threads.
+ * <br>
+ * The blink is described as a series of frames counted from the end of the initial delay. Each cycle steps up to the high
+ * intensity and, when reversing, back down to one step above where it started. The next cycle starts after the
+ * repetition delay.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowBlinkerDefinition {
+    private final int delay;
+    private final int repetitionDelay;
+    private final int stepInterval;
+    private final int steps;
+    private final int framesPerCycle;
+    private final long cycleLength;
+    private final long totalFrames;
+    private final int deltaIntensity;
+    private final int initialIntensity;
+    private final List<PiGlowLED> leds;
+    private final int ledIndexes[];
+
+    /**
+     * Constructor.
+     *
+     * @param delayMillis The initial delay before the animation starts
+     * @param repetitionDelayMillis The stepInterval between repetitions
+     * @param blinkDuration The amount of time it takes to go from lowIntensity to highIntensity
+     * @param lowIntensity The starting intensity
+     * @param highIntensity The highest intensity
+     * @param steps The number of steps required to go from the low to the high intensity. Note that (high - low) % step and blinkDuration % steps must equal 0
+     * @param lowToHigh Whether to animate low to high or high to low
+     * @param reverse Whether the animation will reverse when the high intensity is reached.
+     * @param repetitions The number of times the animation will repeat
+     * @param leds The list of LEDs that will be animated
+     */
+    public PiGlowBlinkerDefinition(int delayMillis, int repetitionDelayMillis, int blinkDuration, int lowIntensity, int highIntensity, int steps, boolean lowToHigh, boolean reverse, int repetitions, List<PiGlowLED> leds) {
+        this.delay = delayMillis;
+        this.repetitionDelay = repetitionDelayMillis;
+        this.stepInterval = blinkDuration / steps;
+        this.steps = steps;
+        this.leds = Collections.unmodifiableList(new ArrayList<>(leds));
+
+        framesPerCycle = reverse ? 2 * steps : steps + 1;
+        cycleLength = (long)(framesPerCycle - 1) * stepInterval + repetitionDelay;
+        totalFrames = (long)repetitions * framesPerCycle;
+
+        int delta = (highIntensity - lowIntensity) / steps;
+        if (lowToHigh) {
+            initialIntensity = lowIntensity;
+            deltaIntensity = delta;
+        }
+        else {
+            initialIntensity = highIntensity;
+            deltaIntensity = -delta;
+        }
+
+        ledIndexes = new int[this.leds.size()];
+        for (int i = 0; i < ledIndexes.length; i++)
+            ledIndexes[i] = this.leds.get(i).getAddress() - 1;
+    }
+
+    /**
+     * Get the initial delay.
+     *
+     * @return The delay before the first frame in milliseconds
+     */
+    public int getDelay() {
+        return delay;
+    }
+
+    /**
+     * Get the LEDs that are animated.
+     *
+     * @return The unmodifiable list of LEDs
+     */
+    public List<PiGlowLED> getLEDs() {
+        return leds;
+    }
+
+    /**
+     * Get the number of frames in the whole blink.
+     *
+     * @return The number of frames
+     */
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+
+    /**
+     * Create a time function that calculates the frames of this definition.
+     *
+     * @return The time function
+     */
+    public PiGlowTimeFunction asTimeFunction() {
+        return (time, frame) -> {
+            if (time < delay)
+                return totalFrames > 0 ? delay : PiGlowAnimation.ANIMATION_COMPLETE;
+
+            if (totalFrames == 0)
+                return PiGlowAnimation.ANIMATION_COMPLETE;
+
+            long current = frameAt(time - delay);
+            fill(intensityOf(current), frame);
+
+            return current + 1 < totalFrames ? delay + frameOffset(current + 1) : PiGlowAnimation.ANIMATION_COMPLETE;
+        };
+    }
+
+    /**
+     * Write an intensity to the LEDs of this definition within a frame.
+     *
+     * @param intensity The intensity
+     * @param frame The frame, indexed by LED address - 1
+     */
+    void fill(int intensity, int frame[]) {
+        for (int index : ledIndexes)
+            frame[index] = intensity;
+    }
+
+    /**
+     * Write an intensity to the LEDs of this definition within a buffer of frames.
+     *
+     * @param intensity The register value
+     * @param frames The buffer, indexed by LED address - 1 from the offset
+     * @param offset The offset of the frame within the buffer
+     */
+    void fill(byte intensity, byte frames[], int offset) {
+        for (int index : ledIndexes)
+            frames[offset + index] = intensity;
+    }
+
+    /**
+     * Calculate the time of a frame relative to the start of the first cycle, counting the frames from the start of the
+     * first cycle.
+     *
+     * @param frame The frame
+     * @return The offset of the frame in milliseconds
+     */
+    long frameOffset(long frame) {
+        return (frame / framesPerCycle) * cycleLength + (frame % framesPerCycle) * stepInterval;
+    }
+
+    /**
+     * Calculate the last frame whose time has been reached.
+     *
+     * @param elapsed The time since the start of the first cycle
+     * @return The frame
+     */
+    long frameAt(long elapsed) {
+        long frame;
+        if (cycleLength == 0)
+            frame = totalFrames - 1;
+        else {
+            long cycle = elapsed / cycleLength;
+            long offset = elapsed % cycleLength;
+            long step = stepInterval == 0 ? framesPerCycle - 1 : Math.min(offset / stepInterval, framesPerCycle - 1);
+            frame = cycle * framesPerCycle + step;
+        }
+
+        return Math.min(frame, totalFrames - 1);
+    }
+
+    /**
+     * Calculate the intensity of a frame.
+     *
+     * @param frame The frame
+     * @return The intensity
+     */
+    int intensityOf(long frame) {
+        int step = (int)(frame % framesPerCycle);
+        if (step > steps)
+            step = 2 * steps - step;
+
+        return initialIntensity + step * deltaIntensity;
+    }
+}
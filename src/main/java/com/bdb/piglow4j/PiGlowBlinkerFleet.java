@@ -0,0 +1,168 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.util.Arrays;
+
+/**
+ * Runs one <code>PiGlowBlinkerDefinition</code> on many boards. The definition is shared, and the only state kept per
+ * board is its start time and next frame, held in primitive arrays indexed by board. A fleet of 200 boards therefore
+ * costs two arrays of 200 longs rather than 200 blinkers.
+ * <br>
+ * Boards can be started at different times so that they blink out of phase. Frames that were missed are skipped, the same
+ * as the default late policy of the animations. This class is not thread safe, but different boards can be stepped from
+ * different threads.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowBlinkerFleet {
+    private final PiGlowBlinkerDefinition definition;
+    private final long startTimes[];
+    private final long nextFrames[];
+
+    /**
+     * Constructor. None of the boards are started.
+     *
+     * @param definition The definition the boards play
+     * @param boards The number of boards
+     */
+    public PiGlowBlinkerFleet(PiGlowBlinkerDefinition definition, int boards) {
+        this.definition = definition;
+        startTimes = new long[boards];
+        nextFrames = new long[boards];
+        Arrays.fill(nextFrames, definition.getTotalFrames());
+    }
+
+    /**
+     * Get the definition the boards play.
+     *
+     * @return The definition
+     */
+    public PiGlowBlinkerDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Get the number of boards.
+     *
+     * @return The number of boards
+     */
+    public int getBoardCount() {
+        return startTimes.length;
+    }
+
+    /**
+     * Start or restart the blink on one board.
+     *
+     * @param board The index of the board
+     * @param now The current time
+     */
+    public void start(int board, long now) {
+        startTimes[board] = now + definition.getDelay();
+        nextFrames[board] = 0;
+    }
+
+    /**
+     * Start or restart the blink on all of the boards.
+     *
+     * @param now The current time
+     */
+    public void startAll(long now) {
+        Arrays.fill(startTimes, now + definition.getDelay());
+        Arrays.fill(nextFrames, 0);
+    }
+
+    /**
+     * Check if the blink on a board has completed or was never started.
+     *
+     * @param board The index of the board
+     * @return True if the board will not change again
+     */
+    public boolean isComplete(int board) {
+        return nextFrames[board] >= definition.getTotalFrames();
+    }
+
+    /**
+     * Calculate the time until the next frame of a board.
+     *
+     * @param board The index of the board
+     * @param now The current time
+     * @return The number of milliseconds until the next frame or <code>PiGlowAnimation.ANIMATION_COMPLETE</code>
+     */
+    public long nextStepMillis(int board, long now) {
+        if (isComplete(board))
+            return PiGlowAnimation.ANIMATION_COMPLETE;
+        else
+            return startTimes[board] + definition.frameOffset(nextFrames[board]) - now;
+    }
+
+    /**
+     * Advance a board to the current time.
+     *
+     * @param board The index of the board
+     * @param now The current time
+     * @param frame The intensities of the 18 LEDs of the board, indexed by LED address - 1, before gamma correction
+     * @return True if a new frame was reached and written to the LEDs of the definition
+     */
+    public boolean step(int board, long now, int frame[]) {
+        long current = advance(board, now);
+        if (current < 0)
+            return false;
+
+        definition.fill(definition.intensityOf(current), frame);
+        return true;
+    }
+
+    /**
+     * Advance all of the boards to the current time.
+     *
+     * @param now The current time
+     * @param frames The gamma corrected register values of all of the boards, 18 per board in board order
+     * @return The number of boards that reached a new frame
+     */
+    public int stepAll(long now, byte frames[]) {
+        int changed = 0;
+        for (int board = 0; board < startTimes.length; board++) {
+            long current = advance(board, now);
+            if (current >= 0) {
+                byte value = (byte)PiGlowLED.gammaCorrect(definition.intensityOf(current));
+                definition.fill(value, frames, board * PiGlow.PIGLOW_LED_COUNT);
+                changed++;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Move the next frame of a board past the current time.
+     *
+     * @param board The index of the board
+     * @param now The current time
+     * @return The frame that is current or -1 if the board has not reached a new frame
+     */
+    private long advance(int board, long now) {
+        long next = nextFrames[board];
+        long start = startTimes[board];
+        if (next >= definition.getTotalFrames() || now < start + definition.frameOffset(next))
+            return -1;
+
+        long current = Math.max(next, definition.frameAt(now - start));
+        nextFrames[board] = current + 1;
+        return current;
+    }
+}
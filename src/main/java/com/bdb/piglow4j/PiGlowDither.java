@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+/**
+ * Temporal error-diffusion dither that reduces 16 bit LED intensities to the 8 bit PWM values used by the PiGlow.
+ * The fraction that is lost when a value is truncated is carried over to the next frame for the same LED, so that the
+ * average over a number of frames equals the high resolution intensity. This only works well when frames are written
+ * at a high, fixed rate (see <code>PiGlowAnimator.setFrameInterval()</code>).
+ * <br>
+ * This class does not allocate any memory after construction and is not thread safe.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowDither {
+    private static final int FRACTION_BITS = 8;
+    private static final int FRACTION_MASK = (1 << FRACTION_BITS) - 1;
+    private static final int MAX_OUTPUT = 0xFF;
+    private final int errors[];
+
+    /**
+     * Constructor.
+     *
+     * @param channels The number of channels (LEDs) being dithered
+     */
+    public PiGlowDither(int channels) {
+        errors = new int[channels];
+    }
+
+    /**
+     * Constructor for dithering all of the LEDs of a PiGlow.
+     */
+    public PiGlowDither() {
+        this(PiGlow.PIGLOW_LED_COUNT);
+    }
+
+    /**
+     * Clear the accumulated error so the next frame is not influenced by the previous frames.
+     */
+    public void reset() {
+        for (int i = 0; i < errors.length; i++)
+            errors[i] = 0;
+    }
+
+    /**
+     * Reduce a frame of high resolution intensities to 8 bit values.
+     *
+     * @param intensities The 16 bit intensities, one per channel
+     * @param frame The array into which the 8 bit values are written, one per channel
+     */
+    public void dither(int intensities[], byte frame[]) {
+        for (int i = 0; i < errors.length; i++) {
+            int value = intensities[i] + errors[i];
+            int output = value >>> FRACTION_BITS;
+
+            //
+            // At full intensity there is nothing left to distribute, so the error is limited to a single output step
+            // to keep it from growing without bound.
+            //
+            if (output > MAX_OUTPUT) {
+                output = MAX_OUTPUT;
+                errors[i] = FRACTION_MASK;
+            }
+            else
+                errors[i] = value & FRACTION_MASK;
+
+            frame[i] = (byte)output;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Renders and writes the frames of many boards at a fixed frame rate. Each board plays one or more
+ * <code>PiGlowTimeFunction</code>s and writes its frames to a <code>PiGlowFrameSink</code>.
+ * <br>
+ * Each tick is split into two phases. In the render phase the boards whose functions are due to change are rendered in
+ * parallel on a <code>ForkJoinPool</code>, with the boards divided into ranges that idle worker threads can steal. The
+ * render phase ends when every range is complete, then the write phase writes the boards that changed, one at a time, on
+ * the ticking thread. When there are fewer functions to evaluate than the parallel threshold the boards are rendered on
+ * the ticking thread, so that a small number of boards does not pay the cost of coordinating the pool.
+ * <br>
+ * The board state is kept in arrays indexed by board. Boards may be added at any time, but are never removed.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowFleetRenderer {
+    /**
+     * The default number of functions that must be evaluated in a tick before the boards are rendered in parallel
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int RANGES_PER_THREAD = 4;
+    private static final Logger logger = Logger.getLogger(PiGlowFleetRenderer.class.getName());
+    private final ForkJoinPool pool;
+    private final int frameInterval;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private int boardCount;
+    private PiGlowFrameSink sinks[] = new PiGlowFrameSink[INITIAL_CAPACITY];
+    private PiGlowTimeFunction functions[][] = new PiGlowTimeFunction[INITIAL_CAPACITY][];
+    private int frames[][] = new int[INITIAL_CAPACITY][];
+    private long startTimes[] = new long[INITIAL_CAPACITY];
+    private long nextChanges[] = new long[INITIAL_CAPACITY];
+    private boolean dirty[] = new boolean[INITIAL_CAPACITY];
+    private byte output[] = new byte[INITIAL_CAPACITY * PiGlow.PIGLOW_LED_COUNT];
+    private ScheduledExecutorService executor;
+    private long tickCount;
+    private long parallelTickCount;
+    private long writeFailureCount;
+
+    /**
+     * Constructor that renders in parallel using the common fork-join pool.
+     *
+     * @param frameInterval The time between ticks in milliseconds
+     */
+    public PiGlowFleetRenderer(int frameInterval) {
+        this(frameInterval, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param frameInterval The time between ticks in milliseconds
+     * @param pool The pool used to render the boards in parallel
+     */
+    public PiGlowFleetRenderer(int frameInterval, ForkJoinPool pool) {
+        if (frameInterval <= 0)
+            throw new IllegalArgumentException("Frame interval must be greater than zero");
+
+        this.frameInterval = frameInterval;
+        this.pool = pool;
+    }
+
+    /**
+     * Set the number of functions that must be evaluated in a tick before the boards are rendered in parallel.
+     *
+     * @param threshold The threshold, zero to always render in parallel or <code>Integer.MAX_VALUE</code> to never render in parallel
+     */
+    public synchronized void setParallelThreshold(int threshold) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("Parallel threshold cannot be negative");
+
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * Add a board. The functions of the board start at the time of the next tick, and functions later in the list are
+     * rendered on top of the earlier ones.
+     *
+     * @param sink The destination of the frames of the board
+     * @param boardFunctions The functions the board plays
+     * @return The index of the board
+     */
+    public synchronized int addBoard(PiGlowFrameSink sink, PiGlowTimeFunction... boardFunctions) {
+        if (boardFunctions.length == 0)
+            throw new IllegalArgumentException("A board must have at least one function");
+
+        if (boardCount == sinks.length) {
+            int capacity = boardCount * 2;
+            sinks = Arrays.copyOf(sinks, capacity);
+            functions = Arrays.copyOf(functions, capacity);
+            frames = Arrays.copyOf(frames, capacity);
+            startTimes = Arrays.copyOf(startTimes, capacity);
+            nextChanges = Arrays.copyOf(nextChanges, capacity);
+            dirty = Arrays.copyOf(dirty, capacity);
+            output = Arrays.copyOf(output, capacity * PiGlow.PIGLOW_LED_COUNT);
+        }
+
+        int board = boardCount++;
+        sinks[board] = sink;
+        functions[board] = boardFunctions.clone();
+        frames[board] = new int[PiGlow.PIGLOW_LED_COUNT];
+        restart(board);
+        return board;
+    }
+
+    /**
+     * Get the number of boards.
+     *
+     * @return The number of boards
+     */
+    public synchronized int getBoardCount() {
+        return boardCount;
+    }
+
+    /**
+     * Get the number of ticks that have been performed.
+     *
+     * @return The number of ticks
+     */
+    public synchronized long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Get the number of ticks whose render phase ran on the fork-join pool.
+     *
+     * @return The number of parallel ticks
+     */
+    public synchronized long getParallelTickCount() {
+        return parallelTickCount;
+    }
+
+    /**
+     * Get the number of frames that could not be written.
+     *
+     * @return The number of failed writes
+     */
+    public synchronized long getWriteFailureCount() {
+        return writeFailureCount;
+    }
+
+    /**
+     * Start ticking at the frame interval. The functions of all of the boards are restarted.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            logger.warning("Fleet renderer is already running");
+            return;
+        }
+
+        for (int board = 0; board < boardCount; board++)
+            restart(board);
+
+        executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+            Thread thread = new Thread(runnable, "PiGlowFleetRenderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.scheduleAtFixedRate(() -> tick(System.currentTimeMillis()), 0, frameInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop ticking and wait for the current tick to finish.
+     */
+    public void stop() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+
+        if (running == null)
+            return;
+
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(1, TimeUnit.SECONDS))
+                logger.warning("Timed out waiting for fleet renderer termination");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Check if the renderer is ticking.
+     *
+     * @return True if the renderer is ticking
+     */
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Render and write the boards for a time. This is called at the frame interval once the renderer is started, but
+     * can also be called directly to drive the renderer from another clock.
+     *
+     * @param now The current time in milliseconds
+     */
+    public synchronized void tick(long now) {
+        tickCount++;
+
+        for (int board = 0; board < boardCount; board++)
+            if (startTimes[board] == Long.MIN_VALUE)
+                startTimes[board] = now;
+
+        int dueFunctions = 0;
+        for (int board = 0; board < boardCount; board++)
+            if (isDue(board, now))
+                dueFunctions += functions[board].length;
+
+        if (dueFunctions > 0 && dueFunctions >= parallelThreshold && pool.getParallelism() > 1) {
+            int leafSize = Math.max(1, boardCount / (pool.getParallelism() * RANGES_PER_THREAD));
+            pool.invoke(new RenderTask(0, boardCount, leafSize, now));
+            parallelTickCount++;
+        }
+        else
+            renderBoards(0, boardCount, now);
+
+        //
+        // The write phase is sequential, as boards often share a bus
+        //
+        for (int board = 0; board < boardCount; board++) {
+            if (!dirty[board])
+                continue;
+
+            try {
+                sinks[board].writeFrame(output, board * PiGlow.PIGLOW_LED_COUNT);
+                dirty[board] = false;
+            }
+            catch (IOException e) {
+                if (writeFailureCount++ == 0)
+                    logger.log(Level.SEVERE, "Failed to write frame of board " + board, e);
+            }
+        }
+    }
+
+    private void restart(int board) {
+        startTimes[board] = Long.MIN_VALUE;
+        nextChanges[board] = 0;
+        dirty[board] = true;
+    }
+
+    private boolean isDue(int board, long now) {
+        long nextChange = nextChanges[board];
+        return nextChange != PiGlowAnimation.ANIMATION_COMPLETE && now - startTimes[board] >= nextChange;
+    }
+
+    /**
+     * Render a range of boards. Each board only touches its own entries of the state arrays, so ranges can be rendered
+     * concurrently.
+     *
+     * @param first The first board of the range
+     * @param end The board after the last board of the range
+     * @param now The current time
+     */
+    private void renderBoards(int first, int end, long now) {
+        for (int board = first; board < end; board++) {
+            if (!isDue(board, now))
+                continue;
+
+            long elapsed = now - startTimes[board];
+            int frame[] = frames[board];
+            long next = PiGlowAnimation.ANIMATION_COMPLETE;
+            for (PiGlowTimeFunction function : functions[board]) {
+                long change = function.render(elapsed, frame);
+                if (change != PiGlowAnimation.ANIMATION_COMPLETE && (next == PiGlowAnimation.ANIMATION_COMPLETE || change < next))
+                    next = change;
+            }
+
+            nextChanges[board] = next;
+
+            int base = board * PiGlow.PIGLOW_LED_COUNT;
+            boolean changed = false;
+            for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++) {
+                byte value = (byte)PiGlowLED.gammaCorrect(frame[i]);
+                if (output[base + i] != value) {
+                    output[base + i] = value;
+                    changed = true;
+                }
+            }
+
+            if (changed)
+                dirty[board] = true;
+        }
+    }
+
+    /**
+     * Task that renders a range of boards, splitting it in half until it is no larger than the leaf size.
+     */
+    private final class RenderTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int first;
+        private final int end;
+        private final int leafSize;
+        private final long now;
+
+        RenderTask(int first, int end, int leafSize, long now) {
+            this.first = first;
+            this.end = end;
+            this.leafSize = leafSize;
+            this.now = now;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - first <= leafSize)
+                renderBoards(first, end, now);
+            else {
+                int middle = (first + end) >>> 1;
+                invokeAll(new RenderTask(first, middle, leafSize, now), new RenderTask(middle, end, leafSize, now));
+            }
+        }
+    }
+}
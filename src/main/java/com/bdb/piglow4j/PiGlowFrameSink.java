@@ -0,0 +1,39 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.IOException;
+
+/**
+ * Destination for complete frames of register values, such as a PiGlow, a remote PiGlow server or a simulated board.
+ * <code>PiGlow.writeFrame</code> and <code>PiGlowClient.writeFrame</code> can be used as sinks with a method reference.
+ *
+ * @see com.bdb.piglow4j.PiGlowFleetRenderer
+ *
+ * @author Bruce Beisel
+ */
+@FunctionalInterface
+public interface PiGlowFrameSink {
+    /**
+     * Write a frame of gamma corrected register values.
+     *
+     * @param frame The buffer containing the intensities of the 18 LEDs in PiGlow address order
+     * @param offset The offset of the first intensity within the buffer
+     * @throws IOException Failed to write the frame
+     */
+    void writeFrame(byte frame[], int offset) throws IOException;
+}
@@ -0,0 +1,171 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+/**
+ * Output stage that smooths the changes made by the animations. Whenever the animations change the LEDs, the new
+ * intensities become a keyframe and the interpolator moves the LEDs from what was last written to the keyframe over a
+ * fixed transition time, writing intermediate frames at the output interval. Animations that only change every few
+ * hundred milliseconds can then stay cheap while the board fades smoothly between their steps. Animations that change
+ * more often than the transition time are followed with a lag, like a low pass filter.
+ * <br>
+ * All of the calculations use 16.16 fixed point on the high resolution intensities. An interpolator keeps the state of
+ * one PiGlow, so it must only be used by one animator.
+ *
+ * @see com.bdb.piglow4j.PiGlowAnimator#setInterpolator(PiGlowInterpolator)
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowInterpolator {
+    /**
+     * The shape of the transition between keyframes.
+     */
+    public enum Curve {
+        /**
+         * Change at a constant rate
+         */
+        LINEAR,
+        /**
+         * Start and finish slowly (smoothstep)
+         */
+        EASE_IN_OUT
+    }
+
+    private static final int ONE = 1 << 16;
+    private final Curve curve;
+    private final long transitionMillis;
+    private final long outputInterval;
+    private final PiGlowLED leds[] = new PiGlowLED[PiGlow.PIGLOW_LED_COUNT];
+    private final int from[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private final int to[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private final int output[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private long keyframeTime;
+    private long renderTime;
+    private boolean primed;
+
+    /**
+     * Constructor.
+     *
+     * @param curve The shape of the transitions
+     * @param transitionMillis The time taken to move to each keyframe, normally the interval at which the animations change
+     * @param outputInterval The time between frames written while moving to a keyframe
+     */
+    public PiGlowInterpolator(Curve curve, long transitionMillis, long outputInterval) {
+        if (transitionMillis <= 0 || outputInterval <= 0)
+            throw new IllegalArgumentException("Transition time and output interval must be positive");
+
+        this.curve = curve;
+        this.transitionMillis = transitionMillis;
+        this.outputInterval = outputInterval;
+        for (int i = 0; i < leds.length; i++)
+            leds[i] = PiGlowLED.findLED(i + 1);
+    }
+
+    /**
+     * Get the time between frames written while moving to a keyframe.
+     *
+     * @return The output interval in milliseconds
+     */
+    public long getOutputInterval() {
+        return outputInterval;
+    }
+
+    /**
+     * Forget the last frame so the next keyframe is shown without a transition.
+     */
+    void reset() {
+        primed = false;
+    }
+
+    /**
+     * Return whether the LEDs are still moving towards the last keyframe.
+     *
+     * @param now The current time
+     * @return True if more frames need to be written
+     */
+    boolean isInterpolating(long now) {
+        return primed && now - keyframeTime < transitionMillis;
+    }
+
+    /**
+     * Replace the intensities of the LEDs, which hold the output of the animations, with the interpolated frame. The
+     * caller restores the LEDs after the frame is written.
+     *
+     * @param now The current time
+     * @return True if the interpolated frame differs from the previous one in the 8 bit intensities
+     */
+    boolean render(long now) {
+        boolean keyframe = !primed;
+        for (int i = 0; i < leds.length && !keyframe; i++)
+            keyframe = leds[i].getHighResolutionIntensity() != to[i];
+
+        if (keyframe) {
+            for (int i = 0; i < leds.length; i++) {
+                to[i] = leds[i].getHighResolutionIntensity();
+                from[i] = primed ? output[i] : to[i];
+            }
+
+            //
+            // The transition starts from the frame that was last shown and keeps the time since it was shown, up to one
+            // output interval, so that animations that change on every frame are still followed
+            //
+            keyframeTime = now - Math.min(Math.max(now - renderTime, 0), outputInterval);
+            if (!primed) {
+                primed = true;
+                renderTime = now;
+                System.arraycopy(to, 0, output, 0, output.length);
+                return true;
+            }
+        }
+
+        renderTime = now;
+
+        int weight = weight(now - keyframeTime);
+        boolean changed = false;
+        for (int i = 0; i < leds.length; i++) {
+            int value = from[i] + (int)(((long)(to[i] - from[i]) * weight) >> 16);
+            if (value >>> 8 != output[i] >>> 8)
+                changed = true;
+
+            output[i] = value;
+            leds[i].setOutputIntensity(value);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Calculate how far the transition has progressed.
+     *
+     * @param elapsed The time since the keyframe
+     * @return The progress from 0 to 1 in 16.16 fixed point
+     */
+    private int weight(long elapsed) {
+        if (elapsed >= transitionMillis)
+            return ONE;
+
+        long t = (elapsed << 16) / transitionMillis;
+        if (curve == Curve.LINEAR)
+            return (int)t;
+
+        //
+        // Smoothstep: 3t^2 - 2t^3
+        //
+        long t2 = (t * t) >> 16;
+        return (int)((t2 * (3L * ONE - 2 * t)) >> 16);
+    }
+}
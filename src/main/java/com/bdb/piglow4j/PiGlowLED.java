@@ -36,15 +36,13 @@ public final class PiGlowLED {
      * Holds the intensities of all of the LEDs so the values can be restored later.
      */
     public static final class Cache {
-	private final List<Integer> intensities = new ArrayList<>(18);
+        private final int intensities[] = new int[PiGlow.PIGLOW_LED_COUNT];
+        private final int highResolutionIntensities[] = new int[PiGlow.PIGLOW_LED_COUNT];
 
         /**
          * Constructor.
          */
 	Cache() {
-	    for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++)
-		intensities.add(0);
-
 	    refresh();
 	}
 
@@ -52,18 +50,51 @@ public final class PiGlowLED {
          * Refresh the cache with the current LED intensities
          */
 	void refresh() {
-	    for (int i = 0; i < intensities.size(); i++)
-		intensities.set(i, ledList.get(i).intensity);
+	    for (int i = 0; i < intensities.length; i++) {
+                PiGlowLED led = ledList.get(i);
+		intensities[i] = led.intensity;
+                highResolutionIntensities[i] = led.highResolutionIntensity;
+            }
 	}
 
         /**
-         * Apply the cache intensities to the LEDs
+         * Apply the cache intensities to the LEDs. The cached values have already been gamma corrected so they are
+         * restored directly.
          */
 	void apply() {
-	    for (int i = 0; i < intensities.size(); i++) {
-		ledList.get(i).setIntensity(intensities.get(i));
+	    for (int i = 0; i < intensities.length; i++) {
+                PiGlowLED led = ledList.get(i);
+		led.intensity = intensities[i];
+                led.highResolutionIntensity = highResolutionIntensities[i];
 	    }
 	}
+
+        /**
+         * Copy the intensities from another cache.
+         *
+         * @param other The cache to copy
+         */
+        void copy(Cache other) {
+            System.arraycopy(other.intensities, 0, intensities, 0, intensities.length);
+            System.arraycopy(other.highResolutionIntensities, 0, highResolutionIntensities, 0, highResolutionIntensities.length);
+        }
+
+        /**
+         * Set the LEDs to a mix of the intensities in another cache and this one. The mix uses the high resolution
+         * intensities so that slow fades stay smooth when dithering.
+         *
+         * @param from The cache whose intensities are used when the weight is 0
+         * @param weight The weight of this cache from 0 to 0x10000
+         */
+        void blend(Cache from, int weight) {
+            for (int i = 0; i < intensities.length; i++) {
+                PiGlowLED led = ledList.get(i);
+                int start = from.highResolutionIntensities[i];
+                int value = start + (int)(((long)(highResolutionIntensities[i] - start) * weight) >> 16);
+                led.highResolutionIntensity = value;
+                led.intensity = value >>> 8;
+            }
+        }
     }
 
     /**
@@ -74,14 +105,21 @@ public final class PiGlowLED {
      * Maximum intensity value for an LED. Be aware that this is very bright.
      */
     public static final int MAX_INTENSITY = 255;
+    /**
+     * Maximum high resolution intensity value for an LED. This is the same brightness as <code>MAX_INTENSITY</code>.
+     */
+    public static final int MAX_HIGH_RESOLUTION_INTENSITY = 0xFFFF;
+    private static final int HIGH_RESOLUTION_GAMMA_BITS = 12;
     private final PiGlowArm arm;
     private final PiGlowColor color;
     private final int address;
     private int intensity;
+    private int highResolutionIntensity;
     private static final Map<Integer,PiGlowLED> leds = new HashMap<>();
     private static final Map<PiGlowArm,List<PiGlowLED>> arms = new HashMap<>();
     private static final Map<PiGlowColor,List<PiGlowLED>> colors = new HashMap<>();
     private static final List<PiGlowLED> ledList = new ArrayList<>();
+    static final PiGlowLED addressList[] = new PiGlowLED[PiGlow.PIGLOW_LED_COUNT];
     private static boolean performGammaCorrection = true;
     // Gamma correction table courtesy of Ben Lebherz
     private static final int GAMMA_CORRECTION_TABLE[] = {
@@ -102,6 +140,19 @@ public final class PiGlowLED {
         130, 133, 136, 139, 142, 145, 148, 151, 155, 158, 161, 165, 169, 172, 176, 180,
         184, 188, 192, 196, 201, 205, 210, 214, 219, 224, 229, 234, 239, 244, 250, 255
     };
+    //
+    // Smooth version of the exponential curve in the table above, used for the high resolution intensities.
+    // The input is reduced to 12 bits and the output is 16 bits.
+    //
+    private static final int HIGH_RESOLUTION_GAMMA_CORRECTION_TABLE[] = new int[1 << HIGH_RESOLUTION_GAMMA_BITS];
+
+    static {
+        int maxInput = HIGH_RESOLUTION_GAMMA_CORRECTION_TABLE.length - 1;
+        for (int i = 0; i <= maxInput; i++) {
+            double value = (Math.pow(2.0, 8.0 * i / maxInput) - 1.0) * (MAX_HIGH_RESOLUTION_INTENSITY / 255.0);
+            HIGH_RESOLUTION_GAMMA_CORRECTION_TABLE[i] = (int)Math.round(value);
+        }
+    }
 
     static {
         //
@@ -144,6 +195,7 @@ public final class PiGlowLED {
         arms.get(led.getArm()).add(led);
         colors.get(led.getColor()).add(led);
         ledList.add(led);
+        addressList[address - 1] = led;
     }
 
     /**
@@ -159,6 +211,21 @@ public final class PiGlowLED {
         return leds.get(id);
     }
 
+    /**
+     * Get the LED object at a PiGlow address.
+     *
+     * @param address The PiGlow address of the LED, from 1 to 18
+     *
+     * @return The LED object
+     * @throws IllegalArgumentException The address is out of range
+     */
+    public static PiGlowLED findLED(int address) throws IllegalArgumentException {
+        if (address < 1 || address > addressList.length)
+            throw new IllegalArgumentException("LED address must be from 1 to " + addressList.length);
+
+        return addressList[address - 1];
+    }
+
     /**
      * Get the LED objects for a specified LED arm.
      * 
@@ -200,6 +267,21 @@ public final class PiGlowLED {
         performGammaCorrection = enabled;
     }
 
+    /**
+     * Apply the gamma correction that <code>setIntensity()</code> would apply, if it is enabled. This is used to render
+     * intensities, such as those from a <code>PiGlowTimeFunction</code>, without changing the LEDs.
+     *
+     * @param value The intensity
+     * @return The intensity that would be written to the PiGlow
+     * @throws IllegalArgumentException Thrown if the intensity is out of range
+     */
+    public static int gammaCorrect(int value) throws IllegalArgumentException {
+        if (value < MIN_INTENSITY || value > MAX_INTENSITY)
+            throw new IllegalArgumentException("Intensity must be from " + MIN_INTENSITY + " to " + MAX_INTENSITY);
+
+        return performGammaCorrection ? GAMMA_CORRECTION_TABLE[value] : value;
+    }
+
     private static int ledIdentifier(PiGlowArm arm, PiGlowColor color) {
         return arm.ordinal() << 8 | color.ordinal();
     }
@@ -240,6 +322,55 @@ public final class PiGlowLED {
             intensity = GAMMA_CORRECTION_TABLE[value];
         else
             intensity = value;
+
+        highResolutionIntensity = intensity << 8 | intensity;
+    }
+
+    /**
+     * Set the intensity of the LED without gamma correction. This is used to play back intensities that were captured
+     * with <code>getIntensity()</code>, which have already been corrected.
+     * Note that this will not take effect until updateLEDs() is called.
+     *
+     * @param value The new intensity value
+     * @throws IllegalArgumentException Thrown if the intensity is out of range
+     */
+    public void setCorrectedIntensity(int value) throws IllegalArgumentException {
+        if (value < MIN_INTENSITY || value > MAX_INTENSITY)
+            throw new IllegalArgumentException("Intensity must be from " + MIN_INTENSITY + " to " + MAX_INTENSITY);
+
+        intensity = value;
+        highResolutionIntensity = intensity << 8 | intensity;
+    }
+
+    /**
+     * Set the intensity of the LED using the full 16 bit range. The PiGlow only supports 8 bit intensities, so the
+     * additional resolution is only visible when dithering is enabled with <code>PiGlow.setDithering()</code>.
+     * Note that this will not take effect until updateLEDs() is called.
+     *
+     * @param value The new intensity value from 0 to <code>MAX_HIGH_RESOLUTION_INTENSITY</code>
+     * @throws IllegalArgumentException Thrown if the intensity is out of range
+     */
+    public void setHighResolutionIntensity(int value) throws IllegalArgumentException {
+        if (value < MIN_INTENSITY || value > MAX_HIGH_RESOLUTION_INTENSITY)
+            throw new IllegalArgumentException("Intensity must be from " + MIN_INTENSITY + " to " + MAX_HIGH_RESOLUTION_INTENSITY);
+
+        if (performGammaCorrection)
+            highResolutionIntensity = HIGH_RESOLUTION_GAMMA_CORRECTION_TABLE[value >>> (16 - HIGH_RESOLUTION_GAMMA_BITS)];
+        else
+            highResolutionIntensity = value;
+
+        intensity = highResolutionIntensity >>> 8;
+    }
+
+    /**
+     * Set the high resolution intensity that is written to the PiGlow, bypassing the range check and gamma correction.
+     * This is used by the output stages of the animator.
+     *
+     * @param value The corrected intensity from 0 to <code>MAX_HIGH_RESOLUTION_INTENSITY</code>
+     */
+    void setOutputIntensity(int value) {
+        highResolutionIntensity = value;
+        intensity = value >>> 8;
     }
 
     /**
@@ -278,6 +409,15 @@ public final class PiGlowLED {
         return intensity;
     }
 
+    /**
+     * Get the 16 bit intensity of this LED.
+     *
+     * @return The high resolution intensity
+     */
+    public int getHighResolutionIntensity() {
+        return highResolutionIntensity;
+    }
+
     /**
      * Get the encoded identifier of this LED. This is not normally used by the application using the PiGlow4J package.
      * 
@@ -0,0 +1,41 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+/**
+ * How an animation handles steps that were missed because the animator ran late, for example during a garbage collection
+ * or while the CPU was busy. With every policy except <code>STRETCH</code> the animation stays locked to the time at which
+ * it started.
+ *
+ * @see com.bdb.piglow4j.PiGlowAnimator#setLatePolicy(PiGlowLatePolicy)
+ *
+ * @author Bruce Beisel
+ */
+public enum PiGlowLatePolicy {
+    /**
+     * Jump straight to the state the animation should be in at the current time, skipping the steps that were missed.
+     */
+    SKIP,
+    /**
+     * Run every missed step, one per animator step, until the animation has caught up.
+     */
+    CATCH_UP,
+    /**
+     * Run the next step and delay the rest of the animation by the time it was late.
+     */
+    STRETCH
+}
@@ -0,0 +1,33 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+/**
+ * Transport that discards everything written to it. It gives the warm-up a PiGlow whose writes cost nothing and reach
+ * no hardware.
+ *
+ * @author Bruce Beisel
+ */
+final class PiGlowNullTransport implements PiGlowTransport {
+    @Override
+    public void write(int register, byte value) {
+    }
+
+    @Override
+    public void write(int register, byte buffer[], int offset, int length) {
+    }
+}
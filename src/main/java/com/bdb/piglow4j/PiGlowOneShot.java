@@ -58,6 +58,27 @@ public final class PiGlowOneShot extends PiGlowAnimation {
 	this(delay, intensity, Arrays.asList(led));
     }
 
+    /**
+     * Create a time function that sets the LEDs at the same time as this animation.
+     *
+     * @return The time function
+     */
+    public PiGlowTimeFunction asTimeFunction() {
+        int indexes[] = new int[leds.size()];
+        for (int i = 0; i < indexes.length; i++)
+            indexes[i] = leds.get(i).getAddress() - 1;
+
+        return (time, frame) -> {
+            if (time < delay)
+                return delay;
+
+            for (int index : indexes)
+                frame[index] = intensity;
+
+            return PiGlowAnimation.ANIMATION_COMPLETE;
+        };
+    }
+
     @Override
     public void initialize(long now) {
         fireTime = now + delay;
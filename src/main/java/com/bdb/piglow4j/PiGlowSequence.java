@@ -79,10 +79,95 @@ public final class PiGlowSequence extends PiGlowAnimation {
         addSequence(milliGap, Arrays.asList(led), intensity);
     }
 
+    /**
+     * Create a time function that calculates the same LED intensities as this sequence. The function takes a copy of
+     * the sequence steps, so steps added later are not included.
+     *
+     * @return The time function
+     */
+    public PiGlowTimeFunction asTimeFunction() {
+        int size = sequences.size();
+        long delays[] = new long[size];
+        int masks[] = new int[size];
+        int intensities[] = new int[size];
+        for (int i = 0; i < size; i++) {
+            Sequence sequence = sequences.get(i);
+            delays[i] = sequence.startDelay;
+            intensities[i] = sequence.intensity;
+            for (PiGlowLED led : sequence.leds)
+                masks[i] |= 1 << (led.getAddress() - 1);
+        }
+
+        long cycleLength = size == 0 ? 0 : delays[size - 1];
+        int cycles = repetitions;
+
+        return (time, frame) -> {
+            if (size == 0 || cycles <= 0)
+                return PiGlowAnimation.ANIMATION_COMPLETE;
+
+            //
+            // Each repetition starts when the last step of the previous one runs
+            //
+            long cycle = cycleLength == 0 ? cycles - 1 : Math.min(time / cycleLength, cycles - 1);
+            long offset = time - cycle * cycleLength;
+
+            //
+            // The last step of the cycle that is due, found by a binary search of the sorted delays
+            //
+            int low = 0;
+            int high = size - 1;
+            int due = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (delays[middle] <= offset) {
+                    due = middle;
+                    low = middle + 1;
+                }
+                else
+                    high = middle - 1;
+            }
+
+            //
+            // Each LED has the intensity of the last step that set it, which may be from the previous cycle
+            //
+            int remaining = 0;
+            for (int mask : masks)
+                remaining |= mask;
+
+            for (int i = due; i >= 0 && remaining != 0; i--)
+                remaining = apply(masks[i] & remaining, intensities[i], frame, remaining);
+
+            if (cycle > 0)
+                for (int i = size - 1; i > due && remaining != 0; i--)
+                    remaining = apply(masks[i] & remaining, intensities[i], frame, remaining);
+
+            if (due + 1 < size)
+                return cycle * cycleLength + delays[due + 1];
+            else if (cycle + 1 < cycles)
+                return (cycle + 1) * cycleLength + delays[0];
+            else
+                return PiGlowAnimation.ANIMATION_COMPLETE;
+        };
+    }
+
+    /**
+     * Set the intensity of the LEDs in a mask that have not been set yet.
+     *
+     * @return The LEDs that are still to be set
+     */
+    private static int apply(int mask, int intensity, int frame[], int remaining) {
+        for (int i = 0; i < frame.length; i++)
+            if ((mask & (1 << i)) != 0)
+                frame[i] = intensity;
+
+        return remaining & ~mask;
+    }
+
     @Override
     public void initialize(long now) {
         nextStepTime = now + sequences.get(0).startDelay;
         initialTime = now;
+        stepIndex = 0;
         count = 0;
     }
 
@@ -96,9 +181,52 @@ public final class PiGlowSequence extends PiGlowAnimation {
 
     @Override
     public void executeNextStep(long now) {
-        if (now < nextStepTime)
+        //
+        // The animator keeps stepping completed animations while other animations or output stages are still running
+        //
+        if (now < nextStepTime || stepIndex >= sequences.size())
             return;
 
+        switch (getLatePolicy()) {
+            case SKIP:
+                //
+                // Apply every step that is due so the LEDs end up in the state they would have had, but only the last of
+                // the steps is ever seen
+                //
+                int executed = 0;
+                while (stepIndex < sequences.size() && initialTime + sequences.get(stepIndex).startDelay <= now) {
+                    executeStep();
+                    executed++;
+                    if (stepIndex >= sequences.size() && !startNextCycle(now, true))
+                        break;
+                }
+
+                if (executed > 1)
+                    addSkippedSteps(executed - 1);
+                break;
+
+            case STRETCH:
+                initialTime += now - nextStepTime;
+                executeStep();
+                if (stepIndex >= sequences.size())
+                    startNextCycle(now, false);
+                break;
+
+            default:
+                executeStep();
+                if (stepIndex >= sequences.size())
+                    startNextCycle(now, false);
+                break;
+        }
+
+        if (stepIndex < sequences.size())
+            nextStepTime = initialTime + sequences.get(stepIndex).startDelay;
+    }
+
+    /**
+     * Set the LEDs of all of the sequence steps that start at the same time.
+     */
+    private void executeStep() {
         long delay = sequences.get(stepIndex).startDelay;
 
         for (int i = stepIndex; i < sequences.size() && sequences.get(i).startDelay == delay; i++) {
@@ -106,16 +234,56 @@ public final class PiGlowSequence extends PiGlowAnimation {
             for (PiGlowLED led : sequences.get(i).leds)
                 led.setIntensity(sequences.get(i).intensity);
         }
+    }
 
-        if (stepIndex < sequences.size())
-            nextStepTime = initialTime + sequences.get(stepIndex).startDelay;
-        else {
-            count++;
-            if (count < repetitions) {
-                initialTime = now;
-                stepIndex = 0;
-                nextStepTime = now + sequences.get(0).startDelay;
-            }
+    /**
+     * Start the next repetition when the last step of a cycle has run. The next cycle starts when the last one ended so
+     * the sequence does not drift.
+     *
+     * @param now The current time
+     * @param skip Whether any whole cycles that ended before the current time are skipped
+     * @return True if another cycle was started
+     */
+    private boolean startNextCycle(long now, boolean skip) {
+        count++;
+        if (count >= repetitions)
+            return false;
+
+        long cycleLength = sequences.get(sequences.size() - 1).startDelay;
+        initialTime += cycleLength;
+        stepIndex = 0;
+        if (!skip)
+            return true;
+
+        if (cycleLength == 0) {
+            //
+            // Every repetition happens at the same instant and leaves the LEDs the same, so there is nothing left to do
+            //
+            addSkippedSteps((long)(repetitions - count) * stepCount());
+            count = repetitions;
+            stepIndex = sequences.size();
+            return false;
         }
+
+        long wholeCycles = Math.max(0, Math.min((now - initialTime) / cycleLength, repetitions - count - 1));
+        if (wholeCycles > 0) {
+            addSkippedSteps(wholeCycles * stepCount());
+            count += wholeCycles;
+            initialTime += wholeCycles * cycleLength;
+        }
+
+        return true;
+    }
+
+    /**
+     * Count the steps in one cycle, treating sequence entries that start at the same time as one step.
+     */
+    private long stepCount() {
+        long steps = 0;
+        for (int i = 0; i < sequences.size(); i++)
+            if (i == 0 || sequences.get(i).startDelay != sequences.get(i - 1).startDelay)
+                steps++;
+
+        return steps;
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+/**
+ * An animation described as a pure function of time. Unlike a <code>PiGlowAnimation</code> a time function has no
+ * state, so any frame can be calculated on its own. Frames can be rendered in any order, from several threads at once,
+ * and one function can drive any number of boards.
+ * <br>
+ * The frame holds one intensity per LED, indexed by LED address - 1, before gamma correction. A function only writes the
+ * LEDs that it controls and leaves the other entries unchanged.
+ *
+ * @see com.bdb.piglow4j.PiGlowTimeFunctionAnimation
+ *
+ * @author Bruce Beisel
+ */
+@FunctionalInterface
+public interface PiGlowTimeFunction {
+    /**
+     * Calculate the intensities of the LEDs at a time.
+     *
+     * @param time The time since the start of the animation in milliseconds
+     * @param frame The intensities of the 18 LEDs
+     * @return The time of the next change or <code>PiGlowAnimation.ANIMATION_COMPLETE</code> if the LEDs will not change again
+     */
+    long render(long time, int frame[]);
+}
@@ -0,0 +1,92 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Animation that plays a <code>PiGlowTimeFunction</code>. The function is evaluated at the current time on each step, so
+ * steps that were missed are always skipped.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowTimeFunctionAnimation extends PiGlowAnimation {
+    private static final int UNCHANGED = -1;
+    private final PiGlowTimeFunction function;
+    private final int frame[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private final PiGlowLED leds[] = new PiGlowLED[PiGlow.PIGLOW_LED_COUNT];
+    private int managedMask;
+    private long startTime;
+    private long nextChange;
+
+    /**
+     * Constructor.
+     *
+     * @param function The function to play
+     */
+    public PiGlowTimeFunctionAnimation(PiGlowTimeFunction function) {
+        this.function = function;
+        for (int i = 0; i < leds.length; i++)
+            leds[i] = PiGlowLED.findLED(i + 1);
+    }
+
+    @Override
+    public void initialize(long now) {
+        startTime = now;
+        nextChange = 0;
+    }
+
+    @Override
+    public long nextStepMillis(long now) {
+        if (nextChange == ANIMATION_COMPLETE)
+            return ANIMATION_COMPLETE;
+        else
+            return startTime + nextChange - now;
+    }
+
+    @Override
+    public void executeNextStep(long now) {
+        if (nextChange == ANIMATION_COMPLETE || now < startTime + nextChange)
+            return;
+
+        Arrays.fill(frame, UNCHANGED);
+        nextChange = function.render(now - startTime, frame);
+
+        int mask = 0;
+        for (int i = 0; i < frame.length; i++) {
+            if (frame[i] != UNCHANGED) {
+                leds[i].setIntensity(frame[i]);
+                mask |= 1 << i;
+            }
+        }
+
+        //
+        // The LEDs a function controls are only known once it has written them, so they are registered as they appear
+        //
+        if ((mask & ~managedMask) != 0) {
+            List<PiGlowLED> added = new ArrayList<>();
+            for (int i = 0; i < leds.length; i++)
+                if ((mask & ~managedMask & (1 << i)) != 0)
+                    added.add(leds[i]);
+
+            managedMask |= mask;
+            this.addManagedLEDs(added);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.IOException;
+
+/**
+ * Fixed size ring buffer of binary trace records. Each record holds the <code>System.nanoTime()</code> at which it was
+ * made, an event and two numbers whose meaning depends on the event. Recording stores four longs and does not allocate,
+ * so it can be left on in the animation loop, where logging at the same rate would be too expensive.
+ * <br>
+ * A trace has a single writer, such as the thread of one animator. It can be dumped from any thread at any time, and
+ * records that are overwritten while a dump is in progress are left out of it.
+ *
+ * @see com.bdb.piglow4j.PiGlowAnimator#setTrace(com.bdb.piglow4j.PiGlowTrace)
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowTrace {
+    /**
+     * The events that are recorded by the animator.
+     */
+    public enum Event {
+        /**
+         * A step of the animations. The values are the step time in milliseconds and the number of animations.
+         */
+        STEP,
+        /**
+         * A write of the LEDs. The values are the duration of the write in nanoseconds and the number of retries.
+         */
+        WRITE,
+        /**
+         * A failed write of the LEDs. The values are the retry number and the number of consecutive failed frames.
+         */
+        WRITE_FAILURE,
+        /**
+         * The scheduling of the next step. The values are the delay in milliseconds, or -1 if the animator is finishing,
+         * and the step time in milliseconds.
+         */
+        SCHEDULE
+    }
+
+    private static final int FIELDS = 4;
+    private static final Event EVENTS[] = Event.values();
+    private final long records[];
+    private final int mask;
+    private volatile long count;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The number of records that are kept, which is rounded up to a power of two
+     */
+    public PiGlowTrace(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 24))
+            throw new IllegalArgumentException("Capacity must be from 1 to " + (1 << 24));
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        records = new long[size * FIELDS];
+        mask = size - 1;
+        count = 0;
+    }
+
+    /**
+     * Get the number of records that are kept.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Get the number of records that have been made, including those that have been overwritten.
+     *
+     * @return The number of records
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Add a record, overwriting the oldest one if the buffer is full. This must only be called by the writer.
+     *
+     * @param event The event
+     * @param value1 The first value
+     * @param value2 The second value
+     */
+    public void record(Event event, long value1, long value2) {
+        long index = count;
+        int slot = (int)(index & mask) * FIELDS;
+        records[slot] = System.nanoTime();
+        records[slot + 1] = event.ordinal();
+        records[slot + 2] = value1;
+        records[slot + 3] = value2;
+
+        //
+        // The volatile write publishes the record to the readers
+        //
+        count = index + 1;
+    }
+
+    /**
+     * Write the records that are in the buffer, oldest first, one per line. The time of each record is shown in
+     * microseconds relative to the newest record.
+     *
+     * @param out The destination of the dump
+     * @throws IOException Failed to write to the destination
+     */
+    public void dump(Appendable out) throws IOException {
+        long end = count;
+        long copy[] = records.clone();
+        long overwritten = count - getCapacity();
+        long start = Math.max(Math.max(0, end - getCapacity()), overwritten + 1);
+        if (start >= end)
+            return;
+
+        long last = copy[(int)((end - 1) & mask) * FIELDS];
+        for (long index = start; index < end; index++) {
+            int slot = (int)(index & mask) * FIELDS;
+            out.append(String.format("%12.1f us %-13s %d %d%n", (copy[slot] - last) / 1000.0, EVENTS[(int)copy[slot + 1]], copy[slot + 2], copy[slot + 3]));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            dump(sb);
+        }
+        catch (IOException e) {
+            // A StringBuilder does not throw
+        }
+
+        return sb.toString();
+    }
+}
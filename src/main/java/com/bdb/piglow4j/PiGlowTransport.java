@@ -0,0 +1,86 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The connection through which a <code>PiGlow</code> writes the registers of the board. Transports are opened by a
+ * <code>PiGlowTransportProvider</code> or created directly and passed to <code>PiGlow.setTransport()</code> or the
+ * <code>PiGlow</code> constructor.
+ * <br>
+ * The registers are addressed as on the SN3218 LED driver of the PiGlow. Register 0x00 enables the outputs, 0x01 to 0x12
+ * hold the LED intensities, 0x13 to 0x15 enable the arms and writing 0xFF to 0x16 makes the new intensities visible.
+ * A transport is used by one <code>PiGlow</code>, which serializes the writes.
+ *
+ * @see com.bdb.piglow4j.PiGlowTransportProvider
+ *
+ * @author Bruce Beisel
+ */
+public interface PiGlowTransport extends Closeable {
+    /**
+     * The register of the first LED intensity
+     */
+    int FIRST_LED_REGISTER = 0x01;
+    /**
+     * The register that makes the new intensities visible when 0xFF is written to it
+     */
+    int COMMIT_REGISTER = 0x16;
+
+    /**
+     * Write a single register.
+     *
+     * @param register The register
+     * @param value The value to write
+     * @throws IOException Failed to write the register
+     */
+    void write(int register, byte value) throws IOException;
+
+    /**
+     * Write a block of consecutive registers.
+     *
+     * @param register The first register
+     * @param buffer The buffer holding the values
+     * @param offset The offset of the first value within the buffer
+     * @param length The number of registers to write
+     * @throws IOException Failed to write the registers
+     */
+    void write(int register, byte buffer[], int offset, int length) throws IOException;
+
+    /**
+     * Write the intensities of all 18 LEDs and commit them. Transports that can do so should override this to write the
+     * frame in a single transfer.
+     *
+     * @param frame The buffer containing the register values of the 18 LEDs in PiGlow address order
+     * @param offset The offset of the first value within the buffer
+     * @throws IOException Failed to write the frame
+     */
+    default void writeFrame(byte frame[], int offset) throws IOException {
+        write(FIRST_LED_REGISTER, frame, offset, PiGlow.PIGLOW_LED_COUNT);
+        write(COMMIT_REGISTER, (byte)0xFF);
+    }
+
+    /**
+     * Release the resources of the transport. The default does nothing.
+     *
+     * @throws IOException Failed to close the transport
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
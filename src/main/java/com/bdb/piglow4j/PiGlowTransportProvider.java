@@ -0,0 +1,52 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.IOException;
+
+/**
+ * Service provider that opens a <code>PiGlowTransport</code>. Providers are found with <code>java.util.ServiceLoader</code>
+ * and the singleton <code>PiGlow</code> uses the one named by the <code>piglow4j.transport</code> system property or, if
+ * that is not set, the first available provider of "pi4j" and "dev-i2c".
+ *
+ * @author Bruce Beisel
+ */
+public interface PiGlowTransportProvider {
+    /**
+     * Get the name by which the transport is selected.
+     *
+     * @return The name
+     */
+    String getName();
+
+    /**
+     * Check if the transport can be opened on this system, for example whether the libraries it depends on are present.
+     *
+     * @param bus The I2C bus number
+     * @return True if the transport can be opened
+     */
+    boolean isAvailable(int bus);
+
+    /**
+     * Open the transport to the PiGlow.
+     *
+     * @param bus The I2C bus number
+     * @return The transport
+     * @throws IOException Failed to open the transport
+     */
+    PiGlowTransport open(int bus) throws IOException;
+}
@@ -0,0 +1,101 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.audio;
+
+/**
+ * In place radix 2 fast Fourier transform. The twiddle factors and the bit reversal permutation are calculated when the
+ * object is created, so a transform does not allocate any memory.
+ *
+ * @author Bruce Beisel
+ */
+final class Fft {
+    private final int size;
+    private final double cos[];
+    private final double sin[];
+    private final int reversed[];
+
+    /**
+     * Constructor.
+     *
+     * @param size The number of points, which must be a power of 2
+     */
+    Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("FFT size must be a power of 2");
+
+        this.size = size;
+        cos = new double[size / 2];
+        sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = Math.cos(-2.0 * Math.PI * i / size);
+            sin[i] = Math.sin(-2.0 * Math.PI * i / size);
+        }
+
+        int bits = Integer.numberOfTrailingZeros(size);
+        reversed = new int[size];
+        for (int i = 0; i < size; i++)
+            reversed[i] = Integer.reverse(i) >>> (32 - bits);
+    }
+
+    /**
+     * Get the number of points.
+     *
+     * @return The size of the transform
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Transform the data in place.
+     *
+     * @param re The real parts
+     * @param im The imaginary parts
+     */
+    void transform(double re[], double im[]) {
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+
+        for (int length = 2; length <= size; length <<= 1) {
+            int half = length >> 1;
+            int step = size / length;
+            for (int start = 0; start < size; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.audio;
+
+import com.bdb.piglow4j.PiGlowArm;
+import com.bdb.piglow4j.PiGlowColor;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Analyzes a stream of 16 bit PCM audio and produces an LED level for each color on each arm of the PiGlow.
+ * The audio is split into six logarithmically spaced frequency bands, from the red LEDs for the bass to the white LEDs
+ * for the treble. The left arm shows the left channel, the right arm shows the right channel and the top arm shows the
+ * average of the two. The levels rise and fall smoothly using separate attack and decay times.
+ * <br>
+ * A windowed FFT is run every hop (a fixed number of samples). All of the buffers are allocated when the analyzer is
+ * created, so no memory is allocated while the audio is being analyzed.
+ *
+ * @see com.bdb.piglow4j.audio.PiGlowAudioAnimation
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowAudioAnalyzer implements Runnable {
+    /**
+     * The number of frequency bands, one for each LED color.
+     */
+    public static final int BANDS = PiGlowColor.values().length;
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final double LOWEST_FREQUENCY = 40.0;
+    private static final double HIGHEST_FREQUENCY = 16000.0;
+    private static final double FLOOR_DB = -60.0;
+    private final InputStream input;
+    private final float sampleRate;
+    private final int channels;
+    private final boolean bigEndian;
+    private final int fftSize;
+    private final int hopSize;
+    private final Fft fft;
+    private final byte readBuffer[];
+    private final double samples[][];
+    private final double window[];
+    private final double re[];
+    private final double im[];
+    private final int bandStart[] = new int[BANDS];
+    private final int bandEnd[] = new int[BANDS];
+    private final double smoothed[][];
+    private final int levels[] = new int[PiGlowArm.values().length * BANDS];
+    private double attackCoefficient;
+    private double decayCoefficient;
+    private boolean realTime;
+    private volatile int published;
+    private volatile boolean running;
+    private volatile boolean finished;
+    private volatile long hopCount;
+    private Thread thread;
+    private static final Logger logger = Logger.getLogger(PiGlowAudioAnalyzer.class.getName());
+
+    /**
+     * Constructor for a stream of raw signed 16 bit PCM samples, such as audio piped to stdin.
+     *
+     * @param input The audio stream
+     * @param sampleRate The sample rate in Hz
+     * @param channels The number of channels, 1 or 2
+     * @param bigEndian True if the samples are big endian
+     * @param fftSize The number of samples in each FFT, which must be a power of 2
+     * @param hopSize The number of samples between FFTs
+     */
+    public PiGlowAudioAnalyzer(InputStream input, float sampleRate, int channels, boolean bigEndian, int fftSize, int hopSize) {
+        if (channels < 1 || channels > 2)
+            throw new IllegalArgumentException("Only mono and stereo audio is supported");
+
+        if (hopSize < 1 || hopSize > fftSize)
+            throw new IllegalArgumentException("Hop size must be from 1 to the FFT size");
+
+        this.input = input;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bigEndian = bigEndian;
+        this.fftSize = fftSize;
+        this.hopSize = hopSize;
+        fft = new Fft(fftSize);
+        readBuffer = new byte[hopSize * channels * BYTES_PER_SAMPLE];
+        samples = new double[channels][fftSize];
+        smoothed = new double[channels][BANDS];
+        re = new double[fftSize];
+        im = new double[fftSize];
+
+        //
+        // Hann window, scaled so that a full scale sine wave has a level of 0 dB
+        //
+        window = new double[fftSize];
+        for (int i = 0; i < fftSize; i++)
+            window[i] = (1.0 - Math.cos(2.0 * Math.PI * i / fftSize)) * 2.0 / fftSize;
+
+        //
+        // Logarithmically spaced bands, each at least one FFT bin wide
+        //
+        double highest = Math.min(HIGHEST_FREQUENCY, sampleRate / 2.0);
+        double binWidth = sampleRate / fftSize;
+        int previousEnd = Math.max(1, (int)(LOWEST_FREQUENCY / binWidth));
+        for (int band = 0; band < BANDS; band++) {
+            double upper = LOWEST_FREQUENCY * Math.pow(highest / LOWEST_FREQUENCY, (band + 1) / (double)BANDS);
+            bandStart[band] = previousEnd;
+            bandEnd[band] = Math.min(fftSize / 2, Math.max(previousEnd + 1, (int)(upper / binWidth)));
+            previousEnd = bandEnd[band];
+        }
+
+        setAttackMillis(20);
+        setDecayMillis(300);
+        realTime = false;
+    }
+
+    /**
+     * Constructor for a stream of raw signed 16 bit little endian PCM samples using a 1024 point FFT every 512 samples.
+     *
+     * @param input The audio stream
+     * @param sampleRate The sample rate in Hz
+     * @param channels The number of channels, 1 or 2
+     */
+    public PiGlowAudioAnalyzer(InputStream input, float sampleRate, int channels) {
+        this(input, sampleRate, channels, false, 1024, 512);
+    }
+
+    /**
+     * Create an analyzer for an audio file, such as a WAV file. The audio is converted to 16 bit PCM if necessary.
+     *
+     * @param input The stream containing the audio file, which must support mark and reset
+     * @return The analyzer
+     * @throws IOException The stream could not be read
+     * @throws UnsupportedAudioFileException The stream is not an audio file that is supported
+     */
+    public static PiGlowAudioAnalyzer openAudioFile(InputStream input) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream audio = AudioSystem.getAudioInputStream(input);
+        AudioFormat format = audio.getFormat();
+        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED || format.getSampleSizeInBits() != 16) {
+            AudioFormat pcm = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, format.isBigEndian());
+            audio = AudioSystem.getAudioInputStream(pcm, audio);
+            format = pcm;
+        }
+
+        return new PiGlowAudioAnalyzer(audio, format.getSampleRate(), format.getChannels(), format.isBigEndian(), 1024, 512);
+    }
+
+    /**
+     * Set how quickly the levels rise.
+     *
+     * @param millis The time constant of the attack
+     */
+    public void setAttackMillis(double millis) {
+        attackCoefficient = smoothingCoefficient(millis);
+    }
+
+    /**
+     * Set how quickly the levels fall.
+     *
+     * @param millis The time constant of the decay
+     */
+    public void setDecayMillis(double millis) {
+        decayCoefficient = smoothingCoefficient(millis);
+    }
+
+    private double smoothingCoefficient(double millis) {
+        if (millis <= 0.0)
+            return 1.0;
+
+        double hopMillis = hopSize * 1000.0 / sampleRate;
+        return 1.0 - Math.exp(-hopMillis / millis);
+    }
+
+    /**
+     * Set whether the audio is analyzed at the rate it would be played. This is needed when the audio is read from a file,
+     * but not when it comes from a live source.
+     *
+     * @param realTime True to analyze in real time
+     */
+    public void setRealTime(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    /**
+     * Start analyzing the audio on a new thread.
+     */
+    public synchronized void start() {
+        if (running)
+            return;
+
+        running = true;
+        finished = false;
+        thread = new Thread(this, "PiGlowAudioAnalyzer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop analyzing the audio.
+     *
+     * @throws InterruptedException If interrupted while waiting for the analyzer thread to exit
+     */
+    public void stop() throws InterruptedException {
+        Thread analyzerThread;
+        synchronized (this) {
+            running = false;
+            analyzerThread = thread;
+        }
+
+        if (analyzerThread != null)
+            analyzerThread.join();
+    }
+
+    /**
+     * Return whether the end of the audio has been reached or the analyzer was stopped.
+     *
+     * @return True if the analyzer is finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the number of hops that have been analyzed.
+     *
+     * @return The hop count
+     */
+    public long getHopCount() {
+        return hopCount;
+    }
+
+    /**
+     * Get the current level for an LED.
+     *
+     * @param arm The arm of the LED
+     * @param color The color of the LED
+     * @return The level from 0 to <code>PiGlowLED.MAX_INTENSITY</code>
+     */
+    public int getLevel(PiGlowArm arm, PiGlowColor color) {
+        //
+        // Reading the volatile hop number makes the levels written before it was published visible to this thread
+        //
+        if (published < 0)
+            return 0;
+
+        return levels[arm.ordinal() * BANDS + color.ordinal()];
+    }
+
+    /**
+     * The analyzer loop.
+     */
+    @Override
+    public void run() {
+        long startTime = System.nanoTime();
+        try {
+            while (running && readHop()) {
+                processHop();
+                if (realTime) {
+                    long due = startTime + (long)(hopCount * hopSize * 1e9 / sampleRate);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0)
+                        Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to read audio", e);
+        }
+        catch (InterruptedException e) {
+            logger.fine("Audio analyzer interrupted");
+        }
+        finally {
+            running = false;
+            finished = true;
+        }
+    }
+
+    /**
+     * Read the samples for the next hop, shifting the older samples down.
+     *
+     * @return False if the end of the audio was reached
+     * @throws IOException The audio could not be read
+     */
+    private boolean readHop() throws IOException {
+        int count = 0;
+        while (count < readBuffer.length) {
+            int n = input.read(readBuffer, count, readBuffer.length - count);
+            if (n < 0)
+                return false;
+
+            count += n;
+        }
+
+        int frameSize = channels * BYTES_PER_SAMPLE;
+        for (int channel = 0; channel < channels; channel++) {
+            double history[] = samples[channel];
+            System.arraycopy(history, hopSize, history, 0, fftSize - hopSize);
+            int offset = channel * BYTES_PER_SAMPLE;
+            for (int i = 0; i < hopSize; i++, offset += frameSize) {
+                int sample;
+                if (bigEndian)
+                    sample = readBuffer[offset] << 8 | (readBuffer[offset + 1] & 0xFF);
+                else
+                    sample = readBuffer[offset + 1] << 8 | (readBuffer[offset] & 0xFF);
+
+                history[fftSize - hopSize + i] = sample / 32768.0;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Analyze the current window of samples and publish the new levels. This is also used directly to measure how many
+     * hops can be analyzed per second.
+     */
+    void processHop() {
+        for (int channel = 0; channel < channels; channel++) {
+            double history[] = samples[channel];
+            for (int i = 0; i < fftSize; i++) {
+                re[i] = history[i] * window[i];
+                im[i] = 0.0;
+            }
+
+            fft.transform(re, im);
+
+            for (int band = 0; band < BANDS; band++) {
+                double power = 0.0;
+                for (int bin = bandStart[band]; bin < bandEnd[band]; bin++)
+                    power += re[bin] * re[bin] + im[bin] * im[bin];
+
+                power /= bandEnd[band] - bandStart[band];
+                double level = (10.0 * Math.log10(power + 1e-12) - FLOOR_DB) / -FLOOR_DB;
+                level = Math.max(0.0, Math.min(1.0, level));
+
+                double previous = smoothed[channel][band];
+                double coefficient = level > previous ? attackCoefficient : decayCoefficient;
+                smoothed[channel][band] = previous + (level - previous) * coefficient;
+            }
+        }
+
+        int right = channels - 1;
+        for (int band = 0; band < BANDS; band++) {
+            int color = BANDS - 1 - band;
+            double left = smoothed[0][band];
+            double rightLevel = smoothed[right][band];
+            levels[PiGlowArm.LEFT.ordinal() * BANDS + color] = toIntensity(left);
+            levels[PiGlowArm.RIGHT.ordinal() * BANDS + color] = toIntensity(rightLevel);
+            levels[PiGlowArm.TOP.ordinal() * BANDS + color] = toIntensity((left + rightLevel) / 2.0);
+        }
+
+        hopCount++;
+        published = (int)hopCount;
+    }
+
+    private static int toIntensity(double level) {
+        return (int)(level * PiGlowLED.MAX_INTENSITY + 0.5);
+    }
+}
@@ -0,0 +1,78 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.audio;
+
+import com.bdb.piglow4j.PiGlowAnimation;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.util.List;
+
+/**
+ * Animation that shows the levels produced by a <code>PiGlowAudioAnalyzer</code> on all of the LEDs. The animation
+ * completes when the analyzer reaches the end of the audio.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowAudioAnimation extends PiGlowAnimation {
+    private final PiGlowAudioAnalyzer analyzer;
+    private final int frameInterval;
+    private final PiGlowLED leds[];
+    private long nextStepTime;
+
+    /**
+     * Constructor.
+     *
+     * @param analyzer The analyzer that produces the levels
+     * @param frameInterval The time between LED updates in milliseconds
+     */
+    public PiGlowAudioAnimation(PiGlowAudioAnalyzer analyzer, int frameInterval) {
+        this.analyzer = analyzer;
+        this.frameInterval = frameInterval;
+        List<PiGlowLED> all = PiGlowLED.allLEDs();
+        leds = all.toArray(new PiGlowLED[all.size()]);
+        this.addManagedLEDs(all);
+    }
+
+    @Override
+    public void initialize(long now) {
+        nextStepTime = now;
+    }
+
+    @Override
+    public long nextStepMillis(long now) {
+        if (analyzer.isFinished())
+            return ANIMATION_COMPLETE;
+        else
+            return nextStepTime - now;
+    }
+
+    @Override
+    public void executeNextStep(long now) {
+        if (now < nextStepTime)
+            return;
+
+        for (PiGlowLED led : leds)
+            led.setIntensity(analyzer.getLevel(led.getArm(), led.getColor()));
+
+        //
+        // Stay on the frame interval, but do not try to make up for frames that were missed
+        //
+        nextStepTime += frameInterval;
+        if (nextStepTime <= now)
+            nextStepTime = now + frameInterval;
+    }
+}
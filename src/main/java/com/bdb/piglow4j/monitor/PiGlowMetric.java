@@ -0,0 +1,41 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.monitor;
+
+/**
+ * The system metrics that can be shown by a <code>PiGlowSystemMonitor</code>.
+ *
+ * @author Bruce Beisel
+ */
+public enum PiGlowMetric {
+    /**
+     * The percentage of time the CPUs were busy, from /proc/stat
+     */
+    CPU,
+    /**
+     * The percentage of memory that is not available, from /proc/meminfo
+     */
+    MEMORY,
+    /**
+     * The bytes received and sent on all interfaces other than loopback, from /proc/net/dev
+     */
+    NETWORK,
+    /**
+     * The percentage of time the busiest disk was doing I/O, from /proc/diskstats
+     */
+    DISK
+}
@@ -0,0 +1,393 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.monitor;
+
+import com.bdb.piglow4j.PiGlowAnimation;
+import com.bdb.piglow4j.PiGlowArm;
+import com.bdb.piglow4j.PiGlowColor;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Animation that shows system metrics as bar graphs on the arms of the PiGlow. Each arm shows one metric, with the
+ * bar growing outwards from the white LED to the red LED. By default the top arm shows the CPU usage, the left arm shows
+ * the memory usage and the right arm shows the network traffic.
+ * <br>
+ * The metrics are read from the files in /proc. The files are kept open and are parsed directly from reused buffers,
+ * so sampling does not allocate any memory. Only the files for the metrics being shown are read.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowSystemMonitor extends PiGlowAnimation implements Closeable {
+    /**
+     * The default network traffic that lights a whole arm, 100 Mbit/s
+     */
+    public static final long DEFAULT_NETWORK_FULL_SCALE = 12500000;
+    private static final byte CPU[] = ascii("cpu ");
+    private static final byte MEM_TOTAL[] = ascii("MemTotal:");
+    private static final byte MEM_AVAILABLE[] = ascii("MemAvailable:");
+    private static final byte MEM_FREE[] = ascii("MemFree:");
+    private static final byte BUFFERS[] = ascii("Buffers:");
+    private static final byte CACHED[] = ascii("Cached:");
+    private static final byte LOOPBACK[] = ascii("lo:");
+    private static final int METRIC_COUNT = PiGlowMetric.values().length;
+    private static final int BAR_LENGTH = PiGlowColor.values().length;
+    private final ProcFile stat;
+    private final ProcFile meminfo;
+    private final ProcFile netdev;
+    private final ProcFile diskstats;
+    private final int sampleInterval;
+    private final PiGlowMetric armMetrics[] = new PiGlowMetric[PiGlowArm.values().length];
+    private final PiGlowLED bars[][] = new PiGlowLED[PiGlowArm.values().length][BAR_LENGTH];
+    private final double values[] = new double[METRIC_COUNT];
+    private final boolean primed[] = new boolean[METRIC_COUNT];
+    private final long lastSampleTime[] = new long[METRIC_COUNT];
+    private long lastCpuBusy;
+    private long lastCpuTotal;
+    private long lastNetworkBytes;
+    private long lastDiskMillis[] = new long[16];
+    private long networkFullScale = DEFAULT_NETWORK_FULL_SCALE;
+    private int brightness = PiGlowLED.MAX_INTENSITY;
+    private long nextStepTime;
+    private static final Logger logger = Logger.getLogger(PiGlowSystemMonitor.class.getName());
+
+    /**
+     * Constructor that reads the metrics from /proc.
+     *
+     * @param sampleInterval The time between samples in milliseconds
+     * @throws IOException One of the /proc files could not be opened
+     */
+    public PiGlowSystemMonitor(int sampleInterval) throws IOException {
+        this(Paths.get("/proc"), sampleInterval);
+    }
+
+    /**
+     * Constructor that reads the metrics from a directory laid out like /proc, such as a directory of test fixtures.
+     *
+     * @param procDirectory The directory containing stat, meminfo, net/dev and diskstats
+     * @param sampleInterval The time between samples in milliseconds
+     * @throws IOException One of the files could not be opened
+     */
+    public PiGlowSystemMonitor(Path procDirectory, int sampleInterval) throws IOException {
+        if (sampleInterval <= 0)
+            throw new IllegalArgumentException("Sample interval must be positive");
+
+        this.sampleInterval = sampleInterval;
+        List<ProcFile> opened = new ArrayList<>();
+        try {
+            stat = open(opened, procDirectory.resolve("stat"));
+            meminfo = open(opened, procDirectory.resolve("meminfo"));
+            netdev = open(opened, procDirectory.resolve("net").resolve("dev"));
+            diskstats = open(opened, procDirectory.resolve("diskstats"));
+        }
+        catch (IOException e) {
+            for (ProcFile file : opened)
+                file.close();
+
+            throw e;
+        }
+
+        for (PiGlowArm arm : PiGlowArm.values())
+            for (PiGlowColor color : PiGlowColor.values())
+                bars[arm.ordinal()][color.ordinal()] = PiGlowLED.findLED(arm, color);
+
+        armMetrics[PiGlowArm.TOP.ordinal()] = PiGlowMetric.CPU;
+        armMetrics[PiGlowArm.LEFT.ordinal()] = PiGlowMetric.MEMORY;
+        armMetrics[PiGlowArm.RIGHT.ordinal()] = PiGlowMetric.NETWORK;
+        this.addManagedLEDs(PiGlowLED.allLEDs());
+    }
+
+    private static ProcFile open(List<ProcFile> opened, Path path) throws IOException {
+        ProcFile file = new ProcFile(path);
+        opened.add(file);
+        return file;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Choose the metric that is shown on an arm.
+     *
+     * @param arm The arm
+     * @param metric The metric to show on the arm
+     */
+    public void setMetric(PiGlowArm arm, PiGlowMetric metric) {
+        armMetrics[arm.ordinal()] = metric;
+    }
+
+    /**
+     * Set the network traffic that lights a whole arm.
+     *
+     * @param bytesPerSecond The bytes per second received and sent
+     */
+    public void setNetworkFullScale(long bytesPerSecond) {
+        if (bytesPerSecond <= 0)
+            throw new IllegalArgumentException("Network full scale must be positive");
+
+        networkFullScale = bytesPerSecond;
+    }
+
+    /**
+     * Set the intensity of a fully lit LED in the bar graphs.
+     *
+     * @param brightness The intensity from 0 to <code>PiGlowLED.MAX_INTENSITY</code>
+     */
+    public void setBrightness(int brightness) {
+        if (brightness < 0 || brightness > PiGlowLED.MAX_INTENSITY)
+            throw new IllegalArgumentException("Brightness must be from 0 to " + PiGlowLED.MAX_INTENSITY);
+
+        this.brightness = brightness;
+    }
+
+    /**
+     * Get the value of a metric from the last sample. Metrics that are based on rates are zero until they have been
+     * sampled twice.
+     *
+     * @param metric The metric
+     * @return The value from 0.0 to 1.0
+     */
+    public double getValue(PiGlowMetric metric) {
+        return values[metric.ordinal()];
+    }
+
+    /**
+     * Sample the metrics that are shown on the arms.
+     *
+     * @param now The current time in milliseconds
+     * @throws IOException One of the files could not be read
+     */
+    public void sample(long now) throws IOException {
+        for (PiGlowMetric metric : PiGlowMetric.values()) {
+            if (!isShown(metric)) {
+                primed[metric.ordinal()] = false;
+                continue;
+            }
+
+            switch (metric) {
+                case CPU:
+                    sampleCpu();
+                    break;
+                case MEMORY:
+                    sampleMemory();
+                    break;
+                case NETWORK:
+                    sampleNetwork(now);
+                    break;
+                case DISK:
+                    sampleDisk(now);
+                    break;
+            }
+
+            primed[metric.ordinal()] = true;
+            lastSampleTime[metric.ordinal()] = now;
+        }
+    }
+
+    private boolean isShown(PiGlowMetric metric) {
+        for (PiGlowMetric shown : armMetrics)
+            if (shown == metric)
+                return true;
+
+        return false;
+    }
+
+    private long elapsedMillis(PiGlowMetric metric, long now) {
+        return primed[metric.ordinal()] ? now - lastSampleTime[metric.ordinal()] : 0;
+    }
+
+    /**
+     * The first line of /proc/stat is the time spent by all of the CPUs in user, nice, system, idle, iowait, irq, softirq
+     * and steal.
+     */
+    private void sampleCpu() throws IOException {
+        stat.read();
+        if (!stat.match(CPU))
+            return;
+
+        long total = 0;
+        long idle = 0;
+        for (int i = 0; i < 8; i++) {
+            long value = stat.nextLong();
+            total += value;
+            if (i == 3 || i == 4)
+                idle += value;
+        }
+
+        long busy = total - idle;
+        if (primed[PiGlowMetric.CPU.ordinal()] && total > lastCpuTotal)
+            values[PiGlowMetric.CPU.ordinal()] = clamp((double)(busy - lastCpuBusy) / (total - lastCpuTotal));
+
+        lastCpuBusy = busy;
+        lastCpuTotal = total;
+    }
+
+    /**
+     * Kernels older than 3.14 do not report MemAvailable, in which case free, buffers and cached are used instead.
+     */
+    private void sampleMemory() throws IOException {
+        meminfo.read();
+        long total = 0;
+        long available = -1;
+        long free = 0;
+        do {
+            if (meminfo.match(MEM_TOTAL))
+                total = meminfo.nextLong();
+            else if (meminfo.match(MEM_AVAILABLE))
+                available = meminfo.nextLong();
+            else if (meminfo.match(MEM_FREE) || meminfo.match(BUFFERS) || meminfo.match(CACHED))
+                free += meminfo.nextLong();
+        } while (meminfo.nextLine());
+
+        if (available < 0)
+            available = free;
+
+        if (total > 0)
+            values[PiGlowMetric.MEMORY.ordinal()] = clamp(1.0 - (double)available / total);
+    }
+
+    /**
+     * After two header lines, each line of /proc/net/dev is the interface name followed by eight receive counters
+     * and eight transmit counters. The first of each is the byte count.
+     */
+    private void sampleNetwork(long now) throws IOException {
+        netdev.read();
+        netdev.nextLine();
+        long bytes = 0;
+        while (netdev.nextLine()) {
+            netdev.skipSpaces();
+            if (netdev.match(LOOPBACK) || !netdev.skipPast(':'))
+                continue;
+
+            bytes += netdev.nextLong();
+            for (int i = 0; i < 7; i++)
+                netdev.skipField();
+
+            bytes += netdev.nextLong();
+        }
+
+        long elapsed = elapsedMillis(PiGlowMetric.NETWORK, now);
+        if (elapsed > 0 && bytes >= lastNetworkBytes)
+            values[PiGlowMetric.NETWORK.ordinal()] = clamp((bytes - lastNetworkBytes) * 1000.0 / elapsed / networkFullScale);
+
+        lastNetworkBytes = bytes;
+    }
+
+    /**
+     * Each line of /proc/diskstats is the major number, minor number and name of a device followed by its counters, the
+     * tenth of which is the milliseconds spent doing I/O. Partitions are listed along with their disks, so the busiest
+     * device is used rather than the total.
+     */
+    private void sampleDisk(long now) throws IOException {
+        diskstats.read();
+        long elapsed = elapsedMillis(PiGlowMetric.DISK, now);
+        long busiest = 0;
+        int device = 0;
+        do {
+            diskstats.skipField();
+            diskstats.skipField();
+            diskstats.skipField();
+            for (int i = 0; i < 9; i++)
+                diskstats.skipField();
+
+            long millis = diskstats.nextLong();
+            if (device == lastDiskMillis.length) {
+                long larger[] = new long[lastDiskMillis.length * 2];
+                System.arraycopy(lastDiskMillis, 0, larger, 0, lastDiskMillis.length);
+                lastDiskMillis = larger;
+            }
+
+            //
+            // A device that was added or removed shifts the lines, which shows up as a negative difference for one sample
+            //
+            long delta = millis - lastDiskMillis[device];
+            if (delta > busiest)
+                busiest = delta;
+
+            lastDiskMillis[device++] = millis;
+        } while (diskstats.nextLine());
+
+        if (elapsed > 0)
+            values[PiGlowMetric.DISK.ordinal()] = clamp((double)busiest / elapsed);
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+
+    private void showBars() {
+        for (int arm = 0; arm < armMetrics.length; arm++) {
+            double level = values[armMetrics[arm].ordinal()] * BAR_LENGTH;
+            for (int i = 0; i < BAR_LENGTH; i++)
+                bars[arm][i].setIntensity((int)(clamp(level - i) * brightness + 0.5));
+        }
+    }
+
+    @Override
+    public void initialize(long now) {
+        try {
+            sample(now);
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to sample system metrics", e);
+        }
+
+        nextStepTime = now + sampleInterval;
+    }
+
+    @Override
+    public long nextStepMillis(long now) {
+        return nextStepTime - now;
+    }
+
+    @Override
+    public void executeNextStep(long now) {
+        if (now < nextStepTime)
+            return;
+
+        try {
+            sample(now);
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to sample system metrics", e);
+        }
+
+        showBars();
+
+        nextStepTime += sampleInterval;
+        if (nextStepTime <= now)
+            nextStepTime = now + sampleInterval;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stat.close();
+        meminfo.close();
+        netdev.close();
+        diskstats.close();
+    }
+}
@@ -0,0 +1,166 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.monitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file in /proc that is kept open and read into a reused buffer. The contents are scanned with a cursor so that no
+ * strings are created while sampling.
+ *
+ * @author Bruce Beisel
+ */
+final class ProcFile implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private byte data[];
+    private int length;
+    private int position;
+
+    /**
+     * Constructor.
+     *
+     * @param path The file to open
+     * @throws IOException The file could not be opened
+     */
+    ProcFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        data = new byte[INITIAL_BUFFER_SIZE];
+        buffer = ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Read the whole file again and move the cursor to the start. The files in /proc are regenerated when read from
+     * the beginning, so the channel does not need to be reopened.
+     *
+     * @throws IOException The file could not be read
+     */
+    void read() throws IOException {
+        buffer.clear();
+        while (true) {
+            int n = channel.read(buffer, buffer.position());
+            if (n < 0)
+                break;
+
+            //
+            // The buffer only grows if the file is larger than any earlier read, which does not happen once the
+            // monitor is running
+            //
+            if (!buffer.hasRemaining()) {
+                byte larger[] = new byte[data.length * 2];
+                System.arraycopy(data, 0, larger, 0, data.length);
+                int filled = buffer.position();
+                data = larger;
+                buffer = ByteBuffer.wrap(data);
+                buffer.position(filled);
+            }
+        }
+
+        length = buffer.position();
+        position = 0;
+    }
+
+    /**
+     * Move the cursor to the start of the next line.
+     *
+     * @return False if there are no more lines
+     */
+    boolean nextLine() {
+        while (position < length && data[position] != '\n')
+            position++;
+
+        if (position < length)
+            position++;
+
+        return position < length;
+    }
+
+    /**
+     * Skip any spaces at the cursor.
+     */
+    void skipSpaces() {
+        while (position < length && (data[position] == ' ' || data[position] == '\t'))
+            position++;
+    }
+
+    /**
+     * Check whether the text at the cursor starts with a prefix. The cursor is moved past the prefix if it matches.
+     *
+     * @param prefix The ASCII prefix
+     * @return True if the text matches
+     */
+    boolean match(byte prefix[]) {
+        if (position + prefix.length > length)
+            return false;
+
+        for (int i = 0; i < prefix.length; i++)
+            if (data[position + i] != prefix[i])
+                return false;
+
+        position += prefix.length;
+        return true;
+    }
+
+    /**
+     * Move the cursor past the next occurrence of a character on the current line.
+     *
+     * @param c The character
+     * @return False if the character is not on the current line
+     */
+    boolean skipPast(char c) {
+        while (position < length && data[position] != '\n') {
+            if (data[position++] == c)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip the next field on the current line.
+     */
+    void skipField() {
+        skipSpaces();
+        while (position < length && data[position] != ' ' && data[position] != '\t' && data[position] != '\n')
+            position++;
+    }
+
+    /**
+     * Parse the next unsigned number on the current line.
+     *
+     * @return The number or 0 if there is none
+     */
+    long nextLong() {
+        skipSpaces();
+        long value = 0;
+        while (position < length && data[position] >= '0' && data[position] <= '9')
+            value = value * 10 + (data[position++] - '0');
+
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,154 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.net;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * A client of the <code>PiGlowDaemon</code> that provides the same operations as <code>PiGlow</code>. The LEDs are set
+ * using the normal <code>PiGlowLED</code> objects in the client process and <code>updateLEDs()</code> sends them to the
+ * daemon. Each call waits for the daemon to complete the command, and no memory is allocated per call.
+ * This class is not thread safe.
+ *
+ * @see com.bdb.piglow4j.net.PiGlowDaemon
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer request = ByteBuffer.allocateDirect(1 + PiGlow.PIGLOW_LED_COUNT);
+    private final ByteBuffer reply = ByteBuffer.allocateDirect(1);
+
+    private PiGlowClient(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Connect to a daemon.
+     *
+     * @param socketPath The path of the daemon's socket
+     * @return The connected client
+     * @throws IOException The connection failed
+     */
+    public static PiGlowClient connect(Path socketPath) throws IOException {
+        return new PiGlowClient(UnixDomainSockets.openClient(socketPath));
+    }
+
+    /**
+     * Set the intensity of a single LED.
+     *
+     * @param led The LED whose intensity is to be changed
+     * @param intensity the new intensity
+     *
+     * @throws IOException Failed to communicate with the daemon or the daemon failed to write to the PiGlow
+     * @throws IllegalArgumentException The intensity is out of range
+     */
+    public void setLEDIntensity(PiGlowLED led, int intensity) throws IOException, IllegalArgumentException {
+        led.setIntensity(intensity);
+        request.clear();
+        request.put((byte)PiGlowDaemon.SET_LED).put((byte)led.getAddress()).put((byte)intensity);
+        execute();
+    }
+
+    /**
+     * Send the intensities of the LEDs to the daemon.
+     *
+     * @throws IOException Failed to communicate with the daemon or the daemon failed to write to the PiGlow
+     */
+    public void updateLEDs() throws IOException {
+        request.clear();
+        request.put((byte)PiGlowDaemon.FRAME);
+        for (int address = 1; address <= PiGlow.PIGLOW_LED_COUNT; address++)
+            request.put((byte)PiGlowLED.findLED(address).getIntensity());
+
+        execute();
+    }
+
+    /**
+     * Send a frame of gamma corrected register values to the daemon.
+     *
+     * @param frame The buffer containing the intensities of the 18 LEDs in PiGlow address order
+     * @param offset The offset of the first intensity within the buffer
+     * @throws IOException Failed to communicate with the daemon or the daemon failed to write to the PiGlow
+     */
+    public void writeFrame(byte frame[], int offset) throws IOException {
+        request.clear();
+        request.put((byte)PiGlowDaemon.FRAME).put(frame, offset, PiGlow.PIGLOW_LED_COUNT);
+        execute();
+    }
+
+    /**
+     * Turn off all of the LEDs.
+     *
+     * @throws IOException Failed to communicate with the daemon
+     */
+    public void allOff() throws IOException {
+        PiGlowLED.allLEDs().forEach((led) -> led.setIntensity(0));
+        request.clear();
+        request.put((byte)PiGlowDaemon.ALL_OFF);
+        execute();
+    }
+
+    /**
+     * Check that the daemon is responding.
+     *
+     * @throws IOException Failed to communicate with the daemon
+     */
+    public void ping() throws IOException {
+        request.clear();
+        request.put((byte)PiGlowDaemon.PING);
+        execute();
+    }
+
+    /**
+     * Disconnect from the daemon.
+     *
+     * @throws IOException Failed to close the socket
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Send the request and wait for the status.
+     *
+     * @throws IOException Failed to communicate with the daemon or the command failed
+     */
+    private void execute() throws IOException {
+        request.flip();
+        while (request.hasRemaining())
+            channel.write(request);
+
+        reply.clear();
+        while (reply.hasRemaining()) {
+            if (channel.read(reply) < 0)
+                throw new EOFException("PiGlow daemon closed the connection");
+        }
+
+        if (reply.get(0) != PiGlowDaemon.STATUS_OK)
+            throw new IOException("PiGlow daemon failed to execute the command");
+    }
+}
@@ -0,0 +1,374 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.net;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A daemon that owns the PiGlow and accepts commands from other processes over a Unix domain socket. Only the daemon
+ * initializes pi4j and the I2C bus, so the clients start quickly and do not contend for the bus.
+ * Unix domain socket channels require Java 16 or later.
+ * <br>
+ * Each command is a single command byte followed by its arguments, and the daemon answers every command with a single
+ * status byte, <code>STATUS_OK</code> or <code>STATUS_ERROR</code>:
+ * <pre>
+ * FRAME   (1) 18 gamma corrected intensities in PiGlow address order
+ * SET_LED (2) LED address, intensity
+ * ALL_OFF (3)
+ * PING    (4)
+ * </pre>
+ *
+ * @see com.bdb.piglow4j.net.PiGlowClient
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowDaemon implements Runnable {
+    /**
+     * The socket path used when none is specified.
+     */
+    public static final String DEFAULT_SOCKET_PATH = "/tmp/piglow4j.sock";
+    static final int FRAME = 1;
+    static final int SET_LED = 2;
+    static final int ALL_OFF = 3;
+    static final int PING = 4;
+    static final int STATUS_OK = 0;
+    static final int STATUS_ERROR = 1;
+    private static final int BUFFER_SIZE = 512;
+
+    /**
+     * The state of a connected client.
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final PiGlow piGlow;
+    private final Path socketPath;
+    private final List<Client> clients = new ArrayList<>();
+    private final byte frame[] = new byte[PiGlow.PIGLOW_LED_COUNT];
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long commandCount;
+    private volatile int clientCount;
+    private static final Logger logger = Logger.getLogger(PiGlowDaemon.class.getName());
+
+    /**
+     * Constructor.
+     *
+     * @param piGlow The PiGlow owned by this daemon
+     * @param socketPath The path of the Unix domain socket
+     */
+    public PiGlowDaemon(PiGlow piGlow, Path socketPath) {
+        this.piGlow = piGlow;
+        this.socketPath = socketPath;
+    }
+
+    /**
+     * Create the socket and start handling clients on a new thread. A socket file left over by a previous daemon is
+     * removed.
+     *
+     * @throws IOException The socket could not be created
+     */
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+
+        Files.deleteIfExists(socketPath);
+        serverChannel = UnixDomainSockets.openServer(socketPath);
+        serverChannel.configureBlocking(false);
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(this, "PiGlowDaemon");
+        thread.start();
+    }
+
+    /**
+     * Stop the daemon, disconnect the clients and remove the socket file.
+     *
+     * @throws InterruptedException If interrupted while waiting for the daemon thread to exit
+     */
+    public void stop() throws InterruptedException {
+        Thread daemonThread;
+        synchronized (this) {
+            if (!running)
+                return;
+
+            running = false;
+            selector.wakeup();
+            daemonThread = thread;
+        }
+
+        daemonThread.join();
+    }
+
+    /**
+     * Wait for the daemon to stop.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+        Thread daemonThread;
+        synchronized (this) {
+            daemonThread = thread;
+        }
+
+        if (daemonThread != null)
+            daemonThread.join();
+    }
+
+    /**
+     * Get the number of connected clients.
+     *
+     * @return The client count
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Get the number of commands that have been processed.
+     *
+     * @return The command count
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * The selector loop.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid())
+                        continue;
+
+                    if (key.isAcceptable())
+                        accept();
+                    else {
+                        Client client = (Client)key.attachment();
+                        if (key.isReadable())
+                            read(key, client);
+
+                        if (key.isValid() && key.isWritable())
+                            write(key, client);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.SEVERE, "PiGlow daemon failed", e);
+        }
+        finally {
+            running = false;
+            for (Client client : clients)
+                close(client);
+
+            clients.clear();
+            clientCount = 0;
+            try {
+                selector.close();
+                serverChannel.close();
+                Files.deleteIfExists(socketPath);
+            }
+            catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close PiGlow daemon socket", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            Client client = new Client(channel);
+            channel.register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+            clientCount = clients.size();
+        }
+    }
+
+    private void read(SelectionKey key, Client client) {
+        try {
+            if (client.channel.read(client.input) < 0) {
+                disconnect(client);
+                return;
+            }
+
+            client.input.flip();
+            if (!processCommands(client)) {
+                logger.warning("Disconnecting client that sent an invalid command");
+                disconnect(client);
+                return;
+            }
+
+            client.input.compact();
+            write(key, client);
+        }
+        catch (IOException e) {
+            disconnect(client);
+        }
+    }
+
+    private void write(SelectionKey key, Client client) {
+        try {
+            client.output.flip();
+            client.channel.write(client.output);
+            boolean pending = client.output.hasRemaining();
+            client.output.compact();
+
+            //
+            // Only ask for write readiness while a reply could not be sent completely
+            //
+            key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+        catch (IOException e) {
+            disconnect(client);
+        }
+    }
+
+    /**
+     * Execute the complete commands in the client's input buffer, adding the replies to its output buffer.
+     * Processing stops early if there is no room for more replies, the rest is handled once the replies are sent.
+     *
+     * @param client The client
+     * @return False if the client sent an invalid command
+     */
+    private boolean processCommands(Client client) {
+        ByteBuffer input = client.input;
+        while (input.hasRemaining() && client.output.hasRemaining()) {
+            int position = input.position();
+            int command = input.get(position);
+            int length;
+            switch (command) {
+                case FRAME:
+                    length = 1 + PiGlow.PIGLOW_LED_COUNT;
+                    break;
+                case SET_LED:
+                    length = 3;
+                    break;
+                case ALL_OFF:
+                case PING:
+                    length = 1;
+                    break;
+                default:
+                    return false;
+            }
+
+            if (input.remaining() < length)
+                break;
+
+            int status = STATUS_OK;
+            try {
+                switch (command) {
+                    case FRAME:
+                        for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++)
+                            frame[i] = input.get(position + 1 + i);
+
+                        piGlow.writeFrame(frame, 0);
+                        break;
+                    case SET_LED:
+                        piGlow.setLEDIntensity(PiGlowLED.findLED(input.get(position + 1)), input.get(position + 2) & 0xFF);
+                        break;
+                    case ALL_OFF:
+                        piGlow.allOff();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            catch (IOException | IllegalArgumentException e) {
+                logger.log(Level.WARNING, "PiGlow command failed", e);
+                status = STATUS_ERROR;
+            }
+
+            commandCount++;
+            client.output.put((byte)status);
+            input.position(position + length);
+        }
+
+        return true;
+    }
+
+    private void disconnect(Client client) {
+        close(client);
+        clients.remove(client);
+        clientCount = clients.size();
+    }
+
+    private static void close(Client client) {
+        try {
+            client.channel.close();
+        }
+        catch (IOException e) {
+            logger.log(Level.FINE, "Failed to close client", e);
+        }
+    }
+
+    /**
+     * Run the daemon until it is killed.
+     *
+     * @param args The socket path, which is optional
+     */
+    public static void main(String args[]) {
+        PiGlow piGlow = PiGlow.getInstance();
+        if (piGlow == null)
+            System.exit(1);
+
+        Path path = Paths.get(args.length > 0 ? args[0] : DEFAULT_SOCKET_PATH);
+        try {
+            PiGlowDaemon daemon = new PiGlowDaemon(piGlow, path);
+            daemon.start();
+            daemon.join();
+        }
+        catch (IOException | InterruptedException | UnsupportedOperationException e) {
+            logger.log(Level.SEVERE, "Failed to run the PiGlow daemon", e);
+            System.exit(1);
+        }
+    }
+}
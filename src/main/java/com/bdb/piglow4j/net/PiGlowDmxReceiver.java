@@ -0,0 +1,356 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.net;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives DMX512 universes sent using the Art-Net (ArtDmx) or E1.31 (sACN) protocols and drives the PiGlow LEDs from a
+ * range of channels in one universe. Both protocols are accepted on the same socket; the protocol is determined from
+ * the packet header.
+ * <br>
+ * All of the packets that are waiting on the socket are decoded before the LEDs are written, so only the latest frame is
+ * written when packets arrive faster than the PiGlow can be updated. The packets are decoded directly from a direct
+ * buffer that is reused, so no memory is allocated for each packet.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowDmxReceiver implements Runnable {
+    /**
+     * The UDP port used by Art-Net.
+     */
+    public static final int ART_NET_PORT = 6454;
+    /**
+     * The UDP port used by E1.31.
+     */
+    public static final int E131_PORT = 5568;
+    private static final int MAX_PACKET_SIZE = 1144;
+    private static final int DMX_CHANNELS = 512;
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+    private static final byte ART_NET_ID[] = {'A', 'r', 't', '-', 'N', 'e', 't', 0};
+    private static final int ART_NET_OPCODE_OFFSET = 8;
+    private static final int ART_NET_OPCODE_DMX = 0x5000;
+    private static final int ART_NET_UNIVERSE_OFFSET = 14;
+    private static final int ART_NET_LENGTH_OFFSET = 16;
+    private static final int ART_NET_DATA_OFFSET = 18;
+    private static final byte E131_ID[] = {'A', 'S', 'C', '-', 'E', '1', '.', '1', '7', 0, 0, 0};
+    private static final int E131_ID_OFFSET = 4;
+    private static final int E131_ROOT_VECTOR_OFFSET = 18;
+    private static final int E131_ROOT_VECTOR_DATA = 0x4;
+    private static final int E131_FRAMING_VECTOR_OFFSET = 40;
+    private static final int E131_FRAMING_VECTOR_DATA = 0x2;
+    private static final int E131_OPTIONS_OFFSET = 112;
+    private static final int E131_OPTION_PREVIEW = 0x80;
+    private static final int E131_UNIVERSE_OFFSET = 113;
+    private static final int E131_COUNT_OFFSET = 123;
+    private static final int E131_START_CODE_OFFSET = 125;
+    private static final int E131_DATA_OFFSET = 126;
+    private final PiGlow piGlow;
+    private final InetSocketAddress bindAddress;
+    private final int universe;
+    private final int firstChannel;
+    private final PiGlowLED leds[];
+    private final int values[];
+    private final ByteBuffer buffer;
+    private DatagramChannel channel;
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long packetCount;
+    private volatile long frameCount;
+    private volatile long ignoredPacketCount;
+    private boolean writeFailing;
+    private static final Logger logger = Logger.getLogger(PiGlowDmxReceiver.class.getName());
+
+    /**
+     * Constructor.
+     *
+     * @param piGlow The PiGlow being controlled
+     * @param bindAddress The address and port on which to listen
+     * @param universe The DMX universe that controls the PiGlow
+     * @param firstChannel The DMX channel, starting at 1, that controls the first LED
+     * @param leds The LEDs in the order of the DMX channels that control them
+     */
+    public PiGlowDmxReceiver(PiGlow piGlow, InetSocketAddress bindAddress, int universe, int firstChannel, List<PiGlowLED> leds) {
+        if (firstChannel < 1 || firstChannel + leds.size() - 1 > DMX_CHANNELS)
+            throw new IllegalArgumentException("The DMX channels must be from 1 to " + DMX_CHANNELS);
+
+        this.piGlow = piGlow;
+        this.bindAddress = bindAddress;
+        this.universe = universe;
+        this.firstChannel = firstChannel;
+        this.leds = leds.toArray(new PiGlowLED[leds.size()]);
+        this.values = new int[leds.size()];
+        buffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    }
+
+    /**
+     * Constructor that maps the DMX channels to all of the LEDs in the order of <code>PiGlowLED.allLEDs()</code>.
+     *
+     * @param piGlow The PiGlow being controlled
+     * @param port The UDP port on which to listen, normally <code>ART_NET_PORT</code> or <code>E131_PORT</code>
+     * @param universe The DMX universe that controls the PiGlow
+     * @param firstChannel The DMX channel, starting at 1, that controls the first LED
+     */
+    public PiGlowDmxReceiver(PiGlow piGlow, int port, int universe, int firstChannel) {
+        this(piGlow, new InetSocketAddress(port), universe, firstChannel, PiGlowLED.allLEDs());
+    }
+
+    /**
+     * Open the socket and start receiving on a new thread.
+     *
+     * @throws IOException The socket could not be opened
+     */
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+
+        channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+        channel.bind(bindAddress);
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        running = true;
+        thread = new Thread(this, "PiGlowDmxReceiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Join the E1.31 multicast group of the universe so that multicast packets are received.
+     *
+     * @param networkInterface The interface on which to join the group
+     * @throws IOException The group could not be joined
+     */
+    public synchronized void joinE131Multicast(NetworkInterface networkInterface) throws IOException {
+        if (channel == null)
+            throw new IllegalStateException("The receiver has not been started");
+
+        byte address[] = {(byte)239, (byte)255, (byte)(universe >> 8), (byte)universe};
+        channel.join(InetAddress.getByAddress(address), networkInterface);
+    }
+
+    /**
+     * Stop receiving and close the socket.
+     *
+     * @throws InterruptedException If interrupted while waiting for the receiving thread to exit
+     */
+    public void stop() throws InterruptedException {
+        Thread receiverThread;
+        synchronized (this) {
+            if (!running)
+                return;
+
+            running = false;
+            selector.wakeup();
+            receiverThread = thread;
+        }
+
+        receiverThread.join();
+    }
+
+    /**
+     * Get the local port on which the receiver is listening.
+     *
+     * @return The port or -1 if the receiver has not been started
+     * @throws IOException The local address could not be determined
+     */
+    public synchronized int getLocalPort() throws IOException {
+        if (channel == null)
+            return -1;
+        else
+            return ((InetSocketAddress)channel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Get the number of packets that have been received.
+     *
+     * @return The packet count
+     */
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    /**
+     * Get the number of frames that have been written to the PiGlow.
+     *
+     * @return The frame count
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get the number of packets that were ignored because they were not for this universe or were not DMX data.
+     *
+     * @return The ignored packet count
+     */
+    public long getIgnoredPacketCount() {
+        return ignoredPacketCount;
+    }
+
+    /**
+     * The receive loop.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                selector.selectedKeys().clear();
+
+                //
+                // Drain the socket, keeping only the latest values
+                //
+                boolean newFrame = false;
+                while (running) {
+                    buffer.clear();
+                    if (channel.receive(buffer) == null)
+                        break;
+
+                    packetCount++;
+                    buffer.flip();
+                    if (decode(buffer))
+                        newFrame = true;
+                    else
+                        ignoredPacketCount++;
+                }
+
+                if (newFrame)
+                    writeFrameOrLog();
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.SEVERE, "DMX receiver failed", e);
+        }
+        finally {
+            running = false;
+            try {
+                selector.close();
+                channel.close();
+            }
+            catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close DMX receiver socket", e);
+            }
+        }
+    }
+
+    /**
+     * Write the latest values to the PiGlow, logging a failure instead of stopping the receiver. DMX senders repeat
+     * their frames, so a frame that could not be written is replaced by the next one that arrives.
+     */
+    private void writeFrameOrLog() {
+        for (int i = 0; i < leds.length; i++)
+            leds[i].setIntensity(values[i]);
+
+        try {
+            piGlow.updateLEDs();
+            frameCount++;
+            if (writeFailing) {
+                writeFailing = false;
+                logger.info("Writing to the PiGlow recovered");
+            }
+        }
+        catch (IOException e) {
+            if (!writeFailing) {
+                writeFailing = true;
+                logger.log(Level.SEVERE, "Failed to write to the PiGlow", e);
+            }
+            else
+                logger.log(Level.FINE, "Failed to write to the PiGlow", e);
+        }
+    }
+
+    /**
+     * Decode a packet, copying the channels for the PiGlow into the values array.
+     *
+     * @param packet The packet
+     * @return True if the packet contained values for the PiGlow
+     */
+    private boolean decode(ByteBuffer packet) {
+        int dataOffset;
+        int length;
+        if (matches(packet, 0, ART_NET_ID)) {
+            if (packet.limit() < ART_NET_DATA_OFFSET ||
+                readLittleEndianShort(packet, ART_NET_OPCODE_OFFSET) != ART_NET_OPCODE_DMX ||
+                readLittleEndianShort(packet, ART_NET_UNIVERSE_OFFSET) != universe)
+                return false;
+
+            dataOffset = ART_NET_DATA_OFFSET;
+            length = readBigEndianShort(packet, ART_NET_LENGTH_OFFSET);
+        }
+        else if (matches(packet, E131_ID_OFFSET, E131_ID)) {
+            if (packet.limit() < E131_DATA_OFFSET ||
+                packet.getInt(E131_ROOT_VECTOR_OFFSET) != E131_ROOT_VECTOR_DATA ||
+                packet.getInt(E131_FRAMING_VECTOR_OFFSET) != E131_FRAMING_VECTOR_DATA ||
+                (packet.get(E131_OPTIONS_OFFSET) & E131_OPTION_PREVIEW) != 0 ||
+                readBigEndianShort(packet, E131_UNIVERSE_OFFSET) != universe ||
+                packet.get(E131_START_CODE_OFFSET) != 0)
+                return false;
+
+            dataOffset = E131_DATA_OFFSET;
+            length = readBigEndianShort(packet, E131_COUNT_OFFSET) - 1; // The count includes the start code
+        }
+        else
+            return false;
+
+        int start = dataOffset + firstChannel - 1;
+        if (length < firstChannel - 1 + values.length || start + values.length > packet.limit())
+            return false;
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = packet.get(start + i) & 0xFF;
+
+        return true;
+    }
+
+    private static boolean matches(ByteBuffer packet, int offset, byte id[]) {
+        if (packet.limit() < offset + id.length)
+            return false;
+
+        for (int i = 0; i < id.length; i++)
+            if (packet.get(offset + i) != id[i])
+                return false;
+
+        return true;
+    }
+
+    private static int readLittleEndianShort(ByteBuffer packet, int offset) {
+        return (packet.get(offset) & 0xFF) | (packet.get(offset + 1) & 0xFF) << 8;
+    }
+
+    private static int readBigEndianShort(ByteBuffer packet, int offset) {
+        return (packet.get(offset) & 0xFF) << 8 | (packet.get(offset + 1) & 0xFF);
+    }
+}
@@ -0,0 +1,512 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.net;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A server that lets many local clients share one PiGlow. Each client sends LED values over TCP with a priority, and once
+ * per tick the values of all of the clients are merged into a single frame that is written to the PiGlow. All of the
+ * clients are handled by a single thread using a selector.
+ * <br>
+ * Each message from a client is a header followed by the LED values:
+ * <pre>
+ * byte 0     Message type, SET (1) or RELEASE (2)
+ * byte 1     Priority, 0 - 255 with 255 being the highest
+ * byte 2 - 4 Big endian bit mask of the LEDs in the message, bit 0 being the LED at PiGlow address 1
+ * byte 5 -   SET only, one intensity for each bit that is set in the mask, in address order
+ * </pre>
+ * A SET message changes the values for the LEDs in the mask, leaving the client's other LEDs unchanged. A RELEASE message
+ * removes the client's values for the LEDs in the mask. The priority of the latest message applies to all of the
+ * client's LEDs. When a client disconnects, all of its values are released.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowFrameServer implements Runnable {
+    /**
+     * How the values from multiple clients are merged.
+     */
+    public enum MergeMode {
+        /**
+         * The client with the highest priority controls each LED. Clients with the same priority are merged with HTP.
+         */
+        PRIORITY,
+        /**
+         * Highest takes precedence, the highest value from all of the clients is used for each LED.
+         */
+        HTP
+    }
+
+    /**
+     * Message type that sets LED values.
+     */
+    public static final int SET = 1;
+    /**
+     * Message type that releases LED values.
+     */
+    public static final int RELEASE = 2;
+    /**
+     * Size of the message header.
+     */
+    public static final int HEADER_SIZE = 5;
+    private static final int ALL_LEDS_MASK = (1 << PiGlow.PIGLOW_LED_COUNT) - 1;
+    private static final int READ_BUFFER_SIZE = 256;
+
+    /**
+     * The state of a connected client.
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final int values[] = new int[PiGlow.PIGLOW_LED_COUNT];
+        private int mask;
+        private int priority;
+        private long tokens;
+        private long lastRefill;
+
+        Client(SocketChannel channel, long now, long tokens) {
+            this.channel = channel;
+            this.lastRefill = now;
+            this.tokens = tokens;
+        }
+    }
+
+    private final PiGlow piGlow;
+    private final InetSocketAddress bindAddress;
+    private final List<Client> clients = new ArrayList<>();
+    private final int merged[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private final int mergedPriority[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private volatile MergeMode mergeMode;
+    private volatile long tickMillis;
+    private volatile int rateLimit;
+    private volatile boolean running;
+    private volatile long messageCount;
+    private volatile long droppedMessageCount;
+    private volatile long frameCount;
+    private volatile int clientCount;
+    private boolean changed;
+    private boolean writeFailing;
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread thread;
+    private static final Logger logger = Logger.getLogger(PiGlowFrameServer.class.getName());
+
+    /**
+     * Constructor.
+     *
+     * @param piGlow The PiGlow being controlled
+     * @param bindAddress The address and port on which to accept clients
+     */
+    public PiGlowFrameServer(PiGlow piGlow, InetSocketAddress bindAddress) {
+        this.piGlow = piGlow;
+        this.bindAddress = bindAddress;
+        mergeMode = MergeMode.PRIORITY;
+        tickMillis = 20;
+        rateLimit = 0;
+    }
+
+    /**
+     * Set how the values of the clients are merged.
+     *
+     * @param mode The merge mode
+     */
+    public void setMergeMode(MergeMode mode) {
+        mergeMode = mode;
+    }
+
+    /**
+     * Set the interval at which the merged frame is written to the PiGlow.
+     *
+     * @param millis The tick interval
+     */
+    public void setTickMillis(long millis) {
+        if (millis <= 0)
+            throw new IllegalArgumentException("Tick interval must be positive");
+
+        tickMillis = millis;
+    }
+
+    /**
+     * Set the maximum number of messages per second that each client may send. Messages over the limit are dropped.
+     * The limit allows bursts of up to one second's worth of messages.
+     *
+     * @param messagesPerSecond The limit or 0 for no limit
+     */
+    public void setClientRateLimit(int messagesPerSecond) {
+        if (messagesPerSecond < 0)
+            throw new IllegalArgumentException("Rate limit cannot be negative");
+
+        rateLimit = messagesPerSecond;
+    }
+
+    /**
+     * Open the server socket and start handling clients on a new thread.
+     *
+     * @throws IOException The server socket could not be opened
+     */
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(bindAddress);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(this, "PiGlowFrameServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the server and disconnect all of the clients.
+     *
+     * @throws InterruptedException If interrupted while waiting for the server thread to exit
+     */
+    public void stop() throws InterruptedException {
+        Thread serverThread;
+        synchronized (this) {
+            if (!running)
+                return;
+
+            running = false;
+            selector.wakeup();
+            serverThread = thread;
+        }
+
+        serverThread.join();
+    }
+
+    /**
+     * Get the local port on which the server is accepting clients.
+     *
+     * @return The port or -1 if the server has not been started
+     * @throws IOException The local address could not be determined
+     */
+    public synchronized int getLocalPort() throws IOException {
+        if (serverChannel == null)
+            return -1;
+        else
+            return ((InetSocketAddress)serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Get the number of connected clients.
+     *
+     * @return The client count
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Get the number of messages that have been received from all of the clients.
+     *
+     * @return The message count
+     */
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Get the number of messages that were dropped because a client exceeded the rate limit.
+     *
+     * @return The dropped message count
+     */
+    public long getDroppedMessageCount() {
+        return droppedMessageCount;
+    }
+
+    /**
+     * Get the number of merged frames that have been written to the PiGlow.
+     *
+     * @return The frame count
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * The selector loop.
+     */
+    @Override
+    public void run() {
+        long nextTick = System.currentTimeMillis() + tickMillis;
+        try {
+            while (running) {
+                long timeout = nextTick - System.currentTimeMillis();
+                if (timeout > 0)
+                    selector.select(timeout);
+                else
+                    selector.selectNow();
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid())
+                        continue;
+
+                    if (key.isAcceptable())
+                        accept();
+                    else if (key.isReadable())
+                        read(key);
+                }
+
+                long now = System.currentTimeMillis();
+                if (now >= nextTick) {
+                    if (changed)
+                        writeFrameOrLog();
+
+                    nextTick = now + tickMillis;
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.SEVERE, "PiGlow frame server failed", e);
+        }
+        finally {
+            running = false;
+            for (Client client : clients)
+                close(client);
+
+            clients.clear();
+            clientCount = 0;
+            try {
+                selector.close();
+                serverChannel.close();
+            }
+            catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close PiGlow frame server socket", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel, System.currentTimeMillis(), rateLimit);
+            channel.register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+            clientCount = clients.size();
+        }
+    }
+
+    private void read(SelectionKey key) {
+        Client client = (Client)key.attachment();
+        try {
+            int n = client.channel.read(client.buffer);
+            if (n < 0) {
+                disconnect(client);
+                return;
+            }
+
+            client.buffer.flip();
+            if (!processMessages(client)) {
+                logger.log(Level.WARNING, "Disconnecting client that sent an invalid message");
+                disconnect(client);
+                return;
+            }
+
+            client.buffer.compact();
+        }
+        catch (IOException e) {
+            disconnect(client);
+        }
+    }
+
+    /**
+     * Process all of the complete messages in the client's buffer.
+     *
+     * @param client The client
+     * @return False if the client sent an invalid message
+     */
+    private boolean processMessages(Client client) {
+        ByteBuffer buffer = client.buffer;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int position = buffer.position();
+            int type = buffer.get(position) & 0xFF;
+            int priority = buffer.get(position + 1) & 0xFF;
+            int mask = (buffer.get(position + 2) & 0xFF) << 16 | (buffer.get(position + 3) & 0xFF) << 8 | (buffer.get(position + 4) & 0xFF);
+            if ((mask & ~ALL_LEDS_MASK) != 0)
+                return false;
+
+            int length;
+            if (type == SET)
+                length = HEADER_SIZE + Integer.bitCount(mask);
+            else if (type == RELEASE)
+                length = HEADER_SIZE;
+            else
+                return false;
+
+            if (buffer.remaining() < length)
+                break;
+
+            messageCount++;
+            if (allowMessage(client)) {
+                client.priority = priority;
+                if (type == SET) {
+                    int offset = position + HEADER_SIZE;
+                    for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++) {
+                        if ((mask & (1 << i)) != 0)
+                            client.values[i] = buffer.get(offset++) & 0xFF;
+                    }
+
+                    client.mask |= mask;
+                }
+                else
+                    client.mask &= ~mask;
+
+                changed = true;
+            }
+            else
+                droppedMessageCount++;
+
+            buffer.position(position + length);
+        }
+
+        return true;
+    }
+
+    /**
+     * Apply the rate limit using a token bucket.
+     *
+     * @param client The client that sent a message
+     * @return True if the message is within the rate limit
+     */
+    private boolean allowMessage(Client client) {
+        int limit = rateLimit;
+        if (limit == 0)
+            return true;
+
+        //
+        // Only the time that was turned into whole tokens is used up, so messages that arrive closer together than one
+        // token still accumulate tokens. A full bucket does not save up the time.
+        //
+        long now = System.currentTimeMillis();
+        long added = (now - client.lastRefill) * limit / 1000;
+        if (added > 0) {
+            client.tokens += added;
+            client.lastRefill += added * 1000 / limit;
+        }
+
+        if (client.tokens >= limit) {
+            client.tokens = limit;
+            client.lastRefill = now;
+        }
+
+        if (client.tokens <= 0)
+            return false;
+
+        client.tokens--;
+        return true;
+    }
+
+    private void disconnect(Client client) {
+        close(client);
+        clients.remove(client);
+        clientCount = clients.size();
+        if (client.mask != 0)
+            changed = true;
+    }
+
+    private static void close(Client client) {
+        try {
+            client.channel.close();
+        }
+        catch (IOException e) {
+            logger.log(Level.FINE, "Failed to close client", e);
+        }
+    }
+
+    /**
+     * Write a frame, logging a failure instead of stopping the server. The frame is still marked as changed, so it is
+     * written again on the next tick.
+     */
+    private void writeFrameOrLog() {
+        try {
+            writeFrame();
+            if (writeFailing) {
+                writeFailing = false;
+                logger.info("Writing to the PiGlow recovered");
+            }
+        }
+        catch (IOException e) {
+            if (!writeFailing) {
+                writeFailing = true;
+                logger.log(Level.SEVERE, "Failed to write to the PiGlow", e);
+            }
+            else
+                logger.log(Level.FINE, "Failed to write to the PiGlow", e);
+        }
+    }
+
+    /**
+     * Merge the values of all of the clients and write them to the PiGlow.
+     *
+     * @throws IOException Failed to write to the PiGlow
+     */
+    private void writeFrame() throws IOException {
+        boolean priorityMode = mergeMode == MergeMode.PRIORITY;
+        for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++) {
+            merged[i] = 0;
+            mergedPriority[i] = -1;
+        }
+
+        for (int c = 0; c < clients.size(); c++) {
+            Client client = clients.get(c);
+            if (client.mask == 0)
+                continue;
+
+            for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++) {
+                if ((client.mask & (1 << i)) == 0)
+                    continue;
+
+                if (priorityMode && client.priority > mergedPriority[i]) {
+                    mergedPriority[i] = client.priority;
+                    merged[i] = client.values[i];
+                }
+                else if ((!priorityMode || client.priority == mergedPriority[i]) && client.values[i] > merged[i])
+                    merged[i] = client.values[i];
+            }
+        }
+
+        for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++)
+            PiGlowLED.findLED(i + 1).setIntensity(merged[i]);
+
+        piGlow.updateLEDs();
+        changed = false;
+        frameCount++;
+    }
+}
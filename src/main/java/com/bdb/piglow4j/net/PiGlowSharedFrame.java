@@ -0,0 +1,337 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.net;
+
+import com.bdb.piglow4j.PiGlow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A PiGlow frame in a memory mapped file (normally in /dev/shm) that other processes write without making any system
+ * calls. The frame is protected by a sequence counter (a seqlock): the producer makes the counter odd, writes the frame
+ * and makes the counter even again. The consumer copies the frame and only uses it if the counter was even and did not
+ * change during the copy. There must be only one producer at a time.
+ * <br>
+ * The accesses to the mapped memory are ordered with the <code>VarHandle</code> fences on Java 9 and later and with the
+ * <code>Unsafe</code> fences on Java 8. If neither is available a warning is logged and the seqlock is only best effort
+ * on weakly ordered processors such as the ARM cores of the Raspberry Pi, where a torn frame can occasionally be used.
+ * <br>
+ * The file layout, all values little endian:
+ * <pre>
+ * Offset  Size  Contents
+ *  0      4     Magic number 0x42464750 ("PGFB")
+ *  4      4     Version (1)
+ *  8      8     Sequence counter
+ * 16      18    Gamma corrected LED intensities in PiGlow address order
+ * </pre>
+ * A Python producer only needs the standard library:
+ * <pre>
+ * import mmap, struct
+ * with open("/dev/shm/piglow4j", "r+b") as f:
+ *     m = mmap.mmap(f.fileno(), 64)
+ *     seq = struct.unpack_from("&lt;q", m, 8)[0]
+ *     struct.pack_into("&lt;q", m, 8, seq + 1)
+ *     m[16:34] = bytes(frame)
+ *     struct.pack_into("&lt;q", m, 8, seq + 2)
+ * </pre>
+ * Python has no memory fences, so this producer relies on the stores becoming visible in program order, as they do on
+ * x86. On ARM a producer must be written in a language with fences, for example C with
+ * <code>__atomic_thread_fence(__ATOMIC_RELEASE)</code> after making the counter odd and again before making it even.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowSharedFrame implements Closeable, Runnable {
+    /**
+     * The size of the shared file.
+     */
+    public static final int FILE_SIZE = 64;
+    private static final int MAGIC = 0x42464750;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int FRAME_OFFSET = 16;
+    private static final int READ_ATTEMPTS = 100;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final byte frame[] = new byte[PiGlow.PIGLOW_LED_COUNT];
+    private PiGlow piGlow;
+    private long pollNanos;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long frameCount;
+    private static final Logger logger = Logger.getLogger(PiGlowSharedFrame.class.getName());
+    private static final MethodHandle STORE_FENCE = findFence("releaseFence", "storeFence");
+    private static final MethodHandle LOAD_FENCE = findFence("acquireFence", "loadFence");
+    //
+    // Only used when no fences are available. A volatile access is not a fence, so this is best effort.
+    //
+    private static volatile int fence;
+
+    private PiGlowSharedFrame(RandomAccessFile file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Open a shared frame file, creating and initializing it if it does not exist.
+     *
+     * @param path The path of the file
+     * @return The shared frame
+     * @throws IOException The file could not be opened or is not a shared frame file
+     */
+    public static PiGlowSharedFrame open(Path path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        try {
+            boolean created = file.length() == 0;
+            if (created)
+                file.setLength(FILE_SIZE);
+
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+            }
+            else if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION)
+                throw new IOException(path + " is not a PiGlow shared frame file");
+
+            return new PiGlowSharedFrame(file, buffer);
+        }
+        catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write a frame. This is called by the producer.
+     *
+     * @param source The buffer containing the intensities of the 18 LEDs in PiGlow address order
+     * @param offset The offset of the first intensity within the buffer
+     */
+    public void write(byte source[], int offset) {
+        long sequence = buffer.getLong(SEQUENCE_OFFSET) | 1;
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+        storeFence();
+        for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++)
+            buffer.put(FRAME_OFFSET + i, source[offset + i]);
+
+        storeFence();
+        buffer.putLong(SEQUENCE_OFFSET, sequence + 1);
+    }
+
+    /**
+     * Read the frame if it has changed. This is called by the consumer.
+     *
+     * @param destination The buffer into which the 18 intensities are copied
+     * @param lastSequence The sequence number returned by the last successful read, or -1
+     * @return The sequence number of the frame that was read, or -1 if the frame has not changed or a consistent copy
+     *         could not be made because the producer kept writing
+     */
+    public long read(byte destination[], long lastSequence) {
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            long before = buffer.getLong(SEQUENCE_OFFSET);
+            if (before == lastSequence)
+                return -1;
+
+            if ((before & 1) != 0)
+                continue;
+
+            loadFence();
+            for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++)
+                destination[i] = buffer.get(FRAME_OFFSET + i);
+
+            loadFence();
+            if (buffer.getLong(SEQUENCE_OFFSET) == before)
+                return before;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Find a fence, first in <code>VarHandle</code> (Java 9 and later) and then in <code>Unsafe</code> (Java 8).
+     *
+     * @param varHandleFence The name of the static <code>VarHandle</code> method
+     * @param unsafeFence The name of the <code>Unsafe</code> method
+     * @return The fence, which takes no arguments, or null if there is none
+     */
+    private static MethodHandle findFence(String varHandleFence, String unsafeFence) {
+        MethodType type = MethodType.methodType(void.class);
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("java.lang.invoke.VarHandle"), varHandleFence, type);
+        }
+        catch (ReflectiveOperationException e) {
+            logger.log(Level.FINE, "VarHandle fences are not available", e);
+        }
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.publicLookup().findVirtual(unsafeClass, unsafeFence, type).bindTo(field.get(null));
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.WARNING, "No memory fences are available, the shared frame is only best effort on weakly ordered processors", e);
+            return null;
+        }
+    }
+
+    /**
+     * Keep the loads and stores before this from being reordered with the stores after it.
+     */
+    private static void storeFence() {
+        if (STORE_FENCE == null) {
+            fence = 0;
+            return;
+        }
+
+        try {
+            STORE_FENCE.invokeExact();
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keep the loads before this from being reordered with the loads and stores after it.
+     */
+    private static void loadFence() {
+        if (LOAD_FENCE == null) {
+            int ignored = fence;
+            return;
+        }
+
+        try {
+            LOAD_FENCE.invokeExact();
+        }
+        catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Start a thread that polls the shared frame and writes each new frame to a PiGlow.
+     *
+     * @param piGlow The PiGlow to which the frames are written
+     * @param pollNanos The time between polls
+     */
+    public synchronized void start(PiGlow piGlow, long pollNanos) {
+        if (running)
+            return;
+
+        this.piGlow = piGlow;
+        this.pollNanos = pollNanos;
+        running = true;
+        thread = new Thread(this, "PiGlowSharedFrame");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the consumer thread.
+     *
+     * @throws InterruptedException If interrupted while waiting for the thread to exit
+     */
+    public void stop() throws InterruptedException {
+        Thread consumerThread;
+        synchronized (this) {
+            if (!running)
+                return;
+
+            running = false;
+            consumerThread = thread;
+        }
+
+        LockSupport.unpark(consumerThread);
+        consumerThread.join();
+    }
+
+    /**
+     * Get the number of frames that the consumer has written to the PiGlow.
+     *
+     * @return The frame count
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * The consumer loop.
+     */
+    @Override
+    public void run() {
+        long lastSequence = -1;
+        boolean writeFailing = false;
+        while (running) {
+            long sequence = read(frame, lastSequence);
+            if (sequence < 0) {
+                LockSupport.parkNanos(pollNanos);
+                continue;
+            }
+
+            //
+            // The sequence only moves on once the frame has been written, so a frame that failed is read and written
+            // again on the next poll
+            //
+            try {
+                piGlow.writeFrame(frame, 0);
+                lastSequence = sequence;
+                frameCount++;
+                if (writeFailing) {
+                    writeFailing = false;
+                    logger.info("Writing shared frames to the PiGlow recovered");
+                }
+            }
+            catch (IOException e) {
+                if (!writeFailing) {
+                    writeFailing = true;
+                    logger.log(Level.SEVERE, "Failed to write shared frame to the PiGlow", e);
+                }
+                else
+                    logger.log(Level.FINE, "Failed to write shared frame to the PiGlow", e);
+
+                LockSupport.parkNanos(pollNanos);
+            }
+        }
+    }
+
+    /**
+     * Close the file. The mapping remains valid until the object is garbage collected.
+     *
+     * @throws IOException Failed to close the file
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
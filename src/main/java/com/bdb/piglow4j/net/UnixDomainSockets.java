@@ -0,0 +1,143 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.net;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Access to the Unix domain socket channels that were added in Java 16. This package is built for Java 8, so the
+ * classes are accessed by reflection and an <code>UnsupportedOperationException</code> is thrown on older JVMs.
+ *
+ * @author Bruce Beisel
+ */
+final class UnixDomainSockets {
+    private static final ProtocolFamily UNIX;
+    private static final Method ADDRESS_FACTORY;
+    private static final Method OPEN_SERVER;
+    private static final Method OPEN_CLIENT;
+
+    static {
+        ProtocolFamily family = null;
+        Method addressFactory = null;
+        Method openServer = null;
+        Method openClient = null;
+        try {
+            family = StandardProtocolFamily.valueOf("UNIX");
+            addressFactory = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+            openServer = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openClient = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+        }
+        catch (IllegalArgumentException | ClassNotFoundException | NoSuchMethodException e) {
+            family = null;
+        }
+
+        UNIX = family;
+        ADDRESS_FACTORY = addressFactory;
+        OPEN_SERVER = openServer;
+        OPEN_CLIENT = openClient;
+    }
+
+    private UnixDomainSockets() {
+    }
+
+    /**
+     * Return whether this JVM supports Unix domain socket channels.
+     *
+     * @return True if supported
+     */
+    static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    /**
+     * Create the address of a Unix domain socket.
+     *
+     * @param path The path of the socket file
+     * @return The socket address
+     * @throws IOException Never thrown for a valid path
+     */
+    private static SocketAddress address(Path path) throws IOException {
+        return (SocketAddress)invoke(ADDRESS_FACTORY, path);
+    }
+
+    /**
+     * Open a Unix domain server socket channel that is bound to a path.
+     *
+     * @param path The path of the socket file, which must not exist
+     * @return The bound channel
+     * @throws IOException The channel could not be opened or bound
+     */
+    static ServerSocketChannel openServer(Path path) throws IOException {
+        ServerSocketChannel channel = (ServerSocketChannel)invoke(OPEN_SERVER, UNIX);
+        try {
+            channel.bind(address(path));
+            return channel;
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a Unix domain socket channel that is connected to a path.
+     *
+     * @param path The path of the socket file
+     * @return The connected channel
+     * @throws IOException The channel could not be opened or connected
+     */
+    static SocketChannel openClient(Path path) throws IOException {
+        SocketChannel channel = (SocketChannel)invoke(OPEN_CLIENT, UNIX);
+        try {
+            channel.connect(address(path));
+            return channel;
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Object invoke(Method method, Object argument) throws IOException {
+        if (!isSupported())
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later");
+
+        try {
+            return method.invoke(null, argument);
+        }
+        catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException("Unix domain sockets are not accessible", e);
+        }
+        catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            else if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            else
+                throw new UnsupportedOperationException("Unix domain sockets are not available", cause);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A position within a <code>PiGlowShowFile</code> and the LED intensities at that position. The frames are read with
+ * absolute gets from the mapped file, so moving the cursor does not allocate any memory.
+ *
+ * @author Bruce Beisel
+ */
+final class FrameCursor {
+    final byte values[] = new byte[PiGlowShowFile.LED_COUNT];
+    private final PiGlowShowFile file;
+    private final ByteBuffer buffer;
+    private final int end;
+    private int position;
+    private long time;
+
+    FrameCursor(PiGlowShowFile file) {
+        this.file = file;
+        buffer = file.view();
+        end = file.framesEnd();
+        position = PiGlowShowFile.HEADER_SIZE;
+    }
+
+    /**
+     * Move to the frame that is showing at a time, starting from the closest keyframe.
+     *
+     * @param target The show time in milliseconds
+     */
+    void seek(long target) {
+        int entry = file.findKeyframe(target);
+        if (entry < 0) {
+            Arrays.fill(values, (byte)0);
+            position = PiGlowShowFile.HEADER_SIZE;
+            time = 0;
+        }
+        else {
+            position = file.keyframeOffset(entry);
+            applyFrame();
+            time = file.keyframeTime(entry);
+        }
+
+        advance(target);
+    }
+
+    /**
+     * Apply the frames up to a time.
+     *
+     * @param target The show time in milliseconds
+     */
+    void advance(long target) {
+        long next;
+        while ((next = nextFrameTime()) >= 0 && next <= target) {
+            applyFrame();
+            time = next;
+        }
+    }
+
+    /**
+     * Get the time of the next frame.
+     *
+     * @return The show time of the next frame or -1 if there are no more frames
+     */
+    long nextFrameTime() {
+        if (position >= end)
+            return -1;
+        else
+            return time + (buffer.getInt(position) & 0xFFFFFFFFL);
+    }
+
+    private void applyFrame() {
+        int count = buffer.get(position + 4) & 0xFF;
+        int offset = position + PiGlowShowFile.RECORD_HEADER_SIZE;
+        if (count == PiGlowShowFile.KEYFRAME) {
+            for (int i = 0; i < values.length; i++)
+                values[i] = buffer.get(offset + i);
+
+            position = offset + values.length;
+        }
+        else {
+            for (int i = 0; i < count; i++, offset += 2)
+                values[buffer.get(offset)] = buffer.get(offset + 1);
+
+            position = offset;
+        }
+    }
+}
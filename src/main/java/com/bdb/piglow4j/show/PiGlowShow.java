@@ -0,0 +1,320 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowAnimation;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Animation that plays a show created by the <code>PiGlowShowCompiler</code>. The cues of the show are held in flat arrays
+ * sorted by time, so playing the show only needs a cursor into the arrays and the cue that is currently active for each
+ * LED in each layer. A cue stays active for an LED until a later cue in the same layer changes that LED. The intensity of
+ * an LED comes from the highest layer that has an active cue for it.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowShow extends PiGlowAnimation {
+    static final byte SET = 0;
+    static final byte FADE = 1;
+    static final byte BLINK = 2;
+    static final byte PULSE = 3;
+    static final byte RELEASE = 4;
+    private static final int NO_CUE = -1;
+    private static final int LED_COUNT = PiGlow.PIGLOW_LED_COUNT;
+    private final int layerCount;
+    private final long cueTime[];
+    private final int cueLayer[];
+    private final int cueMask[];
+    private final byte cueKind[];
+    private final int cueLow[];
+    private final int cueHigh[];
+    private final long cueDuration[];
+    private final int cueCount[];
+    private final long loopMillis;
+    private final long frameInterval;
+    private final int usedMask;
+    private final PiGlowLED leds[] = new PiGlowLED[LED_COUNT];
+    private final int active[];
+    private int cursor;
+    private long startTime;
+    private long startOffset;
+    private volatile long showTime;
+    private long nextStepTime;
+    private volatile boolean complete;
+
+    /**
+     * Constructor used by the compiler. The arrays are owned by the show once it is created and must be sorted by time.
+     */
+    PiGlowShow(int layerCount, long cueTime[], int cueLayer[], int cueMask[], byte cueKind[], int cueLow[], int cueHigh[], long cueDuration[], int cueCount[], long loopMillis, long frameInterval) {
+        this.layerCount = layerCount;
+        this.cueTime = cueTime;
+        this.cueLayer = cueLayer;
+        this.cueMask = cueMask;
+        this.cueKind = cueKind;
+        this.cueLow = cueLow;
+        this.cueHigh = cueHigh;
+        this.cueDuration = cueDuration;
+        this.cueCount = cueCount;
+        this.loopMillis = loopMillis;
+        this.frameInterval = frameInterval;
+        active = new int[layerCount * LED_COUNT];
+
+        int mask = 0;
+        for (int m : cueMask)
+            mask |= m;
+
+        usedMask = mask;
+        List<PiGlowLED> managed = new ArrayList<>();
+        for (int i = 0; i < LED_COUNT; i++) {
+            leds[i] = PiGlowLED.findLED(i + 1);
+            if ((usedMask & (1 << i)) != 0)
+                managed.add(leds[i]);
+        }
+
+        this.addManagedLEDs(managed);
+    }
+
+    /**
+     * Get the number of cues in the show.
+     *
+     * @return The cue count
+     */
+    public int getCueCount() {
+        return cueTime.length;
+    }
+
+    /**
+     * Get the number of layers in the show.
+     *
+     * @return The layer count
+     */
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    /**
+     * Get the length of the show, which is the loop length if the show loops or the time of the last cue otherwise.
+     *
+     * @return The length in milliseconds
+     */
+    public long getLength() {
+        if (loopMillis > 0)
+            return loopMillis;
+        else
+            return cueTime.length == 0 ? 0 : cueTime[cueTime.length - 1];
+    }
+
+    /**
+     * Get the time within the show of the last step that was played.
+     *
+     * @return The show time in milliseconds
+     */
+    public long getShowTime() {
+        return showTime;
+    }
+
+    /**
+     * Return whether a show that does not loop has played to its end.
+     *
+     * @return True if the show has ended
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Set the time within the show at which it starts playing. This is used to continue from the same place when a show
+     * is reloaded and must be called before the show is added to an animator.
+     *
+     * @param showMillis The show time in milliseconds
+     */
+    public void setStartTime(long showMillis) {
+        startOffset = Math.max(0, showMillis);
+    }
+
+    @Override
+    public void initialize(long now) {
+        long offset = startOffset;
+        if (loopMillis > 0)
+            offset %= loopMillis;
+
+        startTime = now - offset;
+        nextStepTime = now;
+        complete = false;
+        seek(offset);
+    }
+
+    @Override
+    public long nextStepMillis(long now) {
+        if (complete)
+            return ANIMATION_COMPLETE;
+        else
+            return nextStepTime - now;
+    }
+
+    @Override
+    public void executeNextStep(long now) {
+        if (now < nextStepTime)
+            return;
+
+        long time = now - startTime;
+        if (loopMillis > 0 && time >= loopMillis) {
+            startTime += time - time % loopMillis;
+            time %= loopMillis;
+            seek(time);
+        }
+        else
+            advance(time);
+
+        showTime = time;
+        long nextChange = render(time);
+
+        if (nextChange >= 0)
+            nextStepTime = startTime + nextChange;
+        else if (cursor < cueTime.length)
+            nextStepTime = startTime + cueTime[cursor];
+        else if (loopMillis > 0)
+            nextStepTime = startTime + loopMillis;
+        else
+            complete = true;
+
+        if (cursor < cueTime.length && startTime + cueTime[cursor] < nextStepTime)
+            nextStepTime = startTime + cueTime[cursor];
+    }
+
+    /**
+     * Clear the active cues and replay the cues up to a time.
+     */
+    private void seek(long time) {
+        Arrays.fill(active, NO_CUE);
+        cursor = 0;
+        advance(time);
+    }
+
+    /**
+     * Make the cues up to a time active.
+     */
+    private void advance(long time) {
+        while (cursor < cueTime.length && cueTime[cursor] <= time) {
+            int base = cueLayer[cursor] * LED_COUNT;
+            int mask = cueMask[cursor];
+            int cue = cueKind[cursor] == RELEASE ? NO_CUE : cursor;
+            for (int i = 0; i < LED_COUNT; i++)
+                if ((mask & (1 << i)) != 0)
+                    active[base + i] = cue;
+
+            cursor++;
+        }
+    }
+
+    /**
+     * Set the LEDs used by the show from the highest active cue for each.
+     *
+     * @return The show time of the next change caused by an active cue or -1 if the active cues will not change the LEDs
+     */
+    private long render(long time) {
+        long nextChange = -1;
+        for (int i = 0; i < LED_COUNT; i++) {
+            if ((usedMask & (1 << i)) == 0)
+                continue;
+
+            int intensity = 0;
+            for (int layer = layerCount - 1; layer >= 0; layer--) {
+                int cue = active[layer * LED_COUNT + i];
+                if (cue != NO_CUE) {
+                    intensity = evaluate(cue, time);
+                    long change = nextChange(cue, time);
+                    if (change >= 0 && (nextChange < 0 || change < nextChange))
+                        nextChange = change;
+
+                    break;
+                }
+            }
+
+            leds[i].setIntensity(intensity);
+        }
+
+        return nextChange;
+    }
+
+    private int evaluate(int cue, long time) {
+        long elapsed = time - cueTime[cue];
+        int low = cueLow[cue];
+        int high = cueHigh[cue];
+        long duration = cueDuration[cue];
+        switch (cueKind[cue]) {
+            case FADE:
+                if (elapsed >= duration)
+                    return high;
+                else
+                    return low + (int)((high - low) * elapsed / duration);
+
+            case BLINK:
+                if (isFinished(cue, elapsed))
+                    return low;
+                else
+                    return elapsed % duration < duration / 2 ? high : low;
+
+            case PULSE:
+                if (isFinished(cue, elapsed))
+                    return low;
+                else {
+                    //
+                    // A symmetric triangle, which never passes the high intensity even when the period is odd
+                    //
+                    long phase = elapsed % duration;
+                    long rise = Math.min(phase, duration - phase);
+                    return low + (int)((high - low) * 2 * rise / duration);
+                }
+
+            default:
+                return low;
+        }
+    }
+
+    private long nextChange(int cue, long time) {
+        long elapsed = time - cueTime[cue];
+        long duration = cueDuration[cue];
+        switch (cueKind[cue]) {
+            case FADE:
+                return elapsed >= duration ? -1 : Math.min(time + frameInterval, cueTime[cue] + duration);
+
+            case BLINK:
+                if (isFinished(cue, elapsed))
+                    return -1;
+                else {
+                    long half = duration / 2;
+                    return cueTime[cue] + (elapsed / half + 1) * half;
+                }
+
+            case PULSE:
+                return isFinished(cue, elapsed) ? -1 : time + frameInterval;
+
+            default:
+                return -1;
+        }
+    }
+
+    private boolean isFinished(int cue, long elapsed) {
+        return cueCount[cue] > 0 && elapsed >= cueCount[cue] * cueDuration[cue];
+    }
+}
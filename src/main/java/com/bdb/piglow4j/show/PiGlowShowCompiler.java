@@ -0,0 +1,516 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowAnimator;
+import com.bdb.piglow4j.PiGlowArm;
+import com.bdb.piglow4j.PiGlowColor;
+import com.bdb.piglow4j.PiGlowLED;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles the text description of a show into a <code>PiGlowShow</code>. A show is a list of cues, one per line. Blank lines
+ * and anything following a # are ignored.
+ * <pre>
+ * leds &lt;name&gt; &lt;leds&gt;            Name a set of LEDs
+ * layer &lt;name&gt;                  Add the following cues to a layer, later layers are drawn over earlier layers
+ * loop &lt;time&gt;                   Restart the show after this time
+ * frame &lt;time&gt;                  The time between updates while fading or pulsing, 20ms by default
+ * &lt;time&gt; set &lt;leds&gt; &lt;intensity&gt;
+ * &lt;time&gt; fade &lt;leds&gt; &lt;from&gt; &lt;to&gt; &lt;duration&gt;
+ * &lt;time&gt; blink &lt;leds&gt; &lt;low&gt; &lt;high&gt; &lt;period&gt; [&lt;count&gt;]
+ * &lt;time&gt; pulse &lt;leds&gt; &lt;low&gt; &lt;high&gt; &lt;period&gt; [&lt;count&gt;]
+ * &lt;time&gt; off &lt;leds&gt;               Remove the LEDs from the layer so the layers below show through
+ * </pre>
+ * Times are milliseconds, or can have an ms or s suffix, or can be minutes and seconds such as 1:30.5. A time that starts
+ * with + is relative to the previous cue. Blinks and pulses repeat forever if no count is given.
+ * <br>
+ * LEDs are a comma separated list of: all, an arm (top, left, right), a color (white, blue, green, yellow, orange, red),
+ * an arm and color such as top.red, an LED address or range of addresses such as 1-6, or the name of a set.
+ * <br>
+ * Syntax errors are reported as a <code>ParseException</code> whose error offset is the line number.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowShowCompiler {
+    private static final long DEFAULT_FRAME_INTERVAL = 20;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_CUES = 1 << 24;
+    private final Map<String,Integer> ledSets = new HashMap<>();
+    private final Map<String,Integer> layers = new HashMap<>();
+    private final List<String> tokens = new ArrayList<>();
+    private int lineNumber;
+    private int layer;
+    private long previousTime;
+    private long loopMillis;
+    private long frameInterval = DEFAULT_FRAME_INTERVAL;
+    private int count;
+    private long cueTime[] = new long[INITIAL_CAPACITY];
+    private int cueLayer[] = new int[INITIAL_CAPACITY];
+    private int cueMask[] = new int[INITIAL_CAPACITY];
+    private byte cueKind[] = new byte[INITIAL_CAPACITY];
+    private int cueLow[] = new int[INITIAL_CAPACITY];
+    private int cueHigh[] = new int[INITIAL_CAPACITY];
+    private long cueDuration[] = new long[INITIAL_CAPACITY];
+    private int cueCount[] = new int[INITIAL_CAPACITY];
+
+    private PiGlowShowCompiler() {
+        layers.put("base", 0);
+    }
+
+    /**
+     * Compile a show.
+     *
+     * @param reader The reader for the text of the show
+     * @return The show
+     * @throws IOException The show could not be read
+     * @throws ParseException The show contains an error
+     */
+    public static PiGlowShow compile(Reader reader) throws IOException, ParseException {
+        PiGlowShowCompiler compiler = new PiGlowShowCompiler();
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            compiler.lineNumber++;
+            compiler.compileLine(line);
+        }
+
+        return compiler.createShow();
+    }
+
+    /**
+     * Compile a show from a file.
+     *
+     * @param file The file containing the show
+     * @return The show
+     * @throws IOException The file could not be read
+     * @throws ParseException The show contains an error
+     */
+    public static PiGlowShow compile(Path file) throws IOException, ParseException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return compile(reader);
+        }
+    }
+
+    /**
+     * Compile a show from a string.
+     *
+     * @param text The text of the show
+     * @return The show
+     * @throws ParseException The show contains an error
+     */
+    public static PiGlowShow compile(String text) throws ParseException {
+        try {
+            return compile(new StringReader(text));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compile a show again and replace the show that is playing with it, continuing from the same time. If the show
+     * contains an error the current show keeps playing.
+     *
+     * @param animator The animator that is playing the show
+     * @param current The show that is playing
+     * @param file The file containing the show
+     * @return The new show
+     * @throws IOException The file could not be read
+     * @throws ParseException The show contains an error
+     */
+    public static PiGlowShow reload(PiGlowAnimator animator, PiGlowShow current, Path file) throws IOException, ParseException {
+        PiGlowShow show = compile(file);
+        show.setStartTime(current.getShowTime());
+        if (!animator.replaceAnimation(current, show))
+            animator.addAnimation(show);
+
+        return show;
+    }
+
+    private void compileLine(String line) throws ParseException {
+        tokenize(line);
+        if (tokens.isEmpty())
+            return;
+
+        String first = tokens.get(0);
+        switch (first) {
+            case "leds":
+                expectTokens(3, 3);
+                String name = tokens.get(1);
+                if (isReservedName(name))
+                    throw error("'" + name + "' cannot be used as the name of a set of LEDs");
+
+                ledSets.put(name, parseLEDs(tokens.get(2)));
+                break;
+
+            case "layer":
+                expectTokens(2, 2);
+                Integer index = layers.get(tokens.get(1));
+                if (index == null) {
+                    index = layers.size();
+                    layers.put(tokens.get(1), index);
+                }
+                layer = index;
+                break;
+
+            case "loop":
+                expectTokens(2, 2);
+                loopMillis = parsePositiveTime(tokens.get(1));
+                break;
+
+            case "frame":
+                expectTokens(2, 2);
+                frameInterval = parsePositiveTime(tokens.get(1));
+                break;
+
+            default:
+                compileCue();
+                break;
+        }
+    }
+
+    private void compileCue() throws ParseException {
+        if (tokens.size() < 3)
+            throw error("Expected a time, an action and LEDs");
+
+        long time = parseTime(tokens.get(0), true);
+        int mask = parseLEDs(tokens.get(2));
+        String action = tokens.get(1);
+        switch (action) {
+            case "set":
+                expectTokens(4, 4);
+                addCue(time, mask, PiGlowShow.SET, parseIntensity(tokens.get(3)), 0, 0, 0);
+                break;
+
+            case "fade":
+                expectTokens(6, 6);
+                addCue(time, mask, PiGlowShow.FADE, parseIntensity(tokens.get(3)), parseIntensity(tokens.get(4)), parsePositiveTime(tokens.get(5)), 0);
+                break;
+
+            case "blink":
+            case "pulse":
+                expectTokens(6, 7);
+                long period = parsePositiveTime(tokens.get(5));
+                if (period < 2)
+                    throw error("The period must be at least 2ms");
+
+                int repetitions = tokens.size() == 7 ? parseCount(tokens.get(6)) : 0;
+                byte kind = action.equals("blink") ? PiGlowShow.BLINK : PiGlowShow.PULSE;
+                addCue(time, mask, kind, parseIntensity(tokens.get(3)), parseIntensity(tokens.get(4)), period, repetitions);
+                break;
+
+            case "off":
+                expectTokens(3, 3);
+                addCue(time, mask, PiGlowShow.RELEASE, 0, 0, 0, 0);
+                break;
+
+            default:
+                throw error("Unknown action '" + action + "'");
+        }
+
+        previousTime = time;
+    }
+
+    private void addCue(long time, int mask, byte kind, int low, int high, long duration, int repetitions) throws ParseException {
+        if (count == MAX_CUES)
+            throw error("A show cannot have more than " + MAX_CUES + " cues");
+
+        if (count == cueTime.length) {
+            int capacity = count * 2;
+            cueTime = Arrays.copyOf(cueTime, capacity);
+            cueLayer = Arrays.copyOf(cueLayer, capacity);
+            cueMask = Arrays.copyOf(cueMask, capacity);
+            cueKind = Arrays.copyOf(cueKind, capacity);
+            cueLow = Arrays.copyOf(cueLow, capacity);
+            cueHigh = Arrays.copyOf(cueHigh, capacity);
+            cueDuration = Arrays.copyOf(cueDuration, capacity);
+            cueCount = Arrays.copyOf(cueCount, capacity);
+        }
+
+        cueTime[count] = time;
+        cueLayer[count] = layer;
+        cueMask[count] = mask;
+        cueKind[count] = kind;
+        cueLow[count] = low;
+        cueHigh[count] = high;
+        cueDuration[count] = duration;
+        cueCount[count] = repetitions;
+        count++;
+    }
+
+    /**
+     * Sort the cues by time into the arrays used by the show. Cues with the same time stay in the order of the file so
+     * that a later line overrides an earlier one.
+     */
+    private PiGlowShow createShow() {
+        long keys[] = new long[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = i;
+
+        boolean sorted = true;
+        for (int i = 1; i < count && sorted; i++)
+            sorted = cueTime[i - 1] <= cueTime[i];
+
+        if (!sorted) {
+            //
+            // The time is in the high bits and the line order in the low bits, so a primitive sort is stable
+            //
+            for (int i = 0; i < count; i++)
+                keys[i] = cueTime[i] << 24 | i;
+
+            Arrays.sort(keys);
+            for (int i = 0; i < count; i++)
+                keys[i] &= MAX_CUES - 1;
+        }
+
+        long time[] = new long[count];
+        int layerIndex[] = new int[count];
+        int mask[] = new int[count];
+        byte kind[] = new byte[count];
+        int low[] = new int[count];
+        int high[] = new int[count];
+        long duration[] = new long[count];
+        int repetitions[] = new int[count];
+        for (int i = 0; i < count; i++) {
+            int cue = (int)keys[i];
+            time[i] = cueTime[cue];
+            layerIndex[i] = cueLayer[cue];
+            mask[i] = cueMask[cue];
+            kind[i] = cueKind[cue];
+            low[i] = cueLow[cue];
+            high[i] = cueHigh[cue];
+            duration[i] = cueDuration[cue];
+            repetitions[i] = cueCount[cue];
+        }
+
+        return new PiGlowShow(layers.size(), time, layerIndex, mask, kind, low, high, duration, repetitions, loopMillis, frameInterval);
+    }
+
+    private void tokenize(String line) {
+        tokens.clear();
+        int length = line.indexOf('#');
+        if (length < 0)
+            length = line.length();
+
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean space = i == length || Character.isWhitespace(line.charAt(i));
+            if (space && start >= 0) {
+                tokens.add(line.substring(start, i));
+                start = -1;
+            }
+            else if (!space && start < 0)
+                start = i;
+        }
+    }
+
+    private void expectTokens(int min, int max) throws ParseException {
+        if (tokens.size() < min || tokens.size() > max) {
+            String keyword = Character.isLetter(tokens.get(0).charAt(0)) ? tokens.get(0) : tokens.get(1);
+            throw error("Wrong number of arguments for '" + keyword + "'");
+        }
+    }
+
+    private ParseException error(String message) {
+        return new ParseException("Line " + lineNumber + ": " + message, lineNumber);
+    }
+
+    private boolean isReservedName(String name) {
+        if (name.equals("all") || name.indexOf('.') >= 0 || name.indexOf(',') >= 0 || name.indexOf('-') >= 0 || Character.isDigit(name.charAt(0)))
+            return true;
+
+        return parseArm(name) != null || parseColor(name) != null;
+    }
+
+    private long parseTime(String token, boolean allowRelative) throws ParseException {
+        boolean relative = allowRelative && token.startsWith("+");
+        String text = relative ? token.substring(1) : token;
+        long millis;
+        try {
+            int colon = text.indexOf(':');
+            if (colon >= 0)
+                millis = Long.parseLong(text.substring(0, colon)) * 60000 + parseSeconds(text.substring(colon + 1));
+            else if (text.endsWith("ms"))
+                millis = Long.parseLong(text.substring(0, text.length() - 2));
+            else if (text.endsWith("s"))
+                millis = parseSeconds(text.substring(0, text.length() - 1));
+            else
+                millis = Long.parseLong(text);
+        }
+        catch (NumberFormatException e) {
+            throw error("Invalid time '" + token + "'");
+        }
+
+        if (millis < 0)
+            throw error("Invalid time '" + token + "'");
+
+        return relative ? previousTime + millis : millis;
+    }
+
+    private static long parseSeconds(String text) {
+        if (text.isEmpty() || text.startsWith("-") || text.startsWith("+"))
+            throw new NumberFormatException(text);
+
+        return Math.round(Double.parseDouble(text) * 1000.0);
+    }
+
+    private long parsePositiveTime(String token) throws ParseException {
+        long millis = parseTime(token, false);
+        if (millis == 0)
+            throw error("The time must be greater than zero");
+
+        return millis;
+    }
+
+    private int parseIntensity(String token) throws ParseException {
+        int value = parseInt(token);
+        if (value < 0 || value > PiGlowLED.MAX_INTENSITY)
+            throw error("Intensity must be from 0 to " + PiGlowLED.MAX_INTENSITY);
+
+        return value;
+    }
+
+    private int parseCount(String token) throws ParseException {
+        int value = parseInt(token);
+        if (value <= 0)
+            throw error("The count must be greater than zero");
+
+        return value;
+    }
+
+    private int parseInt(String token) throws ParseException {
+        try {
+            return Integer.parseInt(token);
+        }
+        catch (NumberFormatException e) {
+            throw error("Invalid number '" + token + "'");
+        }
+    }
+
+    private int parseLEDs(String token) throws ParseException {
+        int mask = 0;
+        int start = 0;
+        while (start <= token.length()) {
+            int end = token.indexOf(',', start);
+            if (end < 0)
+                end = token.length();
+
+            mask |= parseLEDTerm(token.substring(start, end));
+            start = end + 1;
+        }
+
+        return mask;
+    }
+
+    private int parseLEDTerm(String term) throws ParseException {
+        if (term.isEmpty())
+            throw error("Missing LEDs");
+
+        if (term.equals("all"))
+            return (1 << PiGlow.PIGLOW_LED_COUNT) - 1;
+
+        Integer named = ledSets.get(term);
+        if (named != null)
+            return named;
+
+        if (Character.isDigit(term.charAt(0))) {
+            int dash = term.indexOf('-');
+            int first = parseAddress(dash < 0 ? term : term.substring(0, dash));
+            int last = dash < 0 ? first : parseAddress(term.substring(dash + 1));
+            if (last < first)
+                throw error("Invalid range of LEDs '" + term + "'");
+
+            int mask = 0;
+            for (int address = first; address <= last; address++)
+                mask |= 1 << (address - 1);
+
+            return mask;
+        }
+
+        int dot = term.indexOf('.');
+        if (dot >= 0) {
+            PiGlowArm arm = parseArm(term.substring(0, dot));
+            PiGlowColor color = parseColor(term.substring(dot + 1));
+            if (arm == null || color == null)
+                throw error("Unknown LED '" + term + "'");
+
+            return maskOf(PiGlowLED.findLED(arm, color));
+        }
+
+        PiGlowArm arm = parseArm(term);
+        if (arm != null)
+            return maskOf(PiGlowLED.armLEDs(arm));
+
+        PiGlowColor color = parseColor(term);
+        if (color != null)
+            return maskOf(PiGlowLED.colorLEDs(color));
+
+        throw error("Unknown LEDs '" + term + "'");
+    }
+
+    private int parseAddress(String text) throws ParseException {
+        int address = parseInt(text);
+        if (address < 1 || address > PiGlow.PIGLOW_LED_COUNT)
+            throw error("LED address must be from 1 to " + PiGlow.PIGLOW_LED_COUNT);
+
+        return address;
+    }
+
+    private static PiGlowArm parseArm(String text) {
+        for (PiGlowArm arm : PiGlowArm.values())
+            if (arm.name().toLowerCase(Locale.ROOT).equals(text))
+                return arm;
+
+        return null;
+    }
+
+    private static PiGlowColor parseColor(String text) {
+        for (PiGlowColor color : PiGlowColor.values())
+            if (color.name().toLowerCase(Locale.ROOT).equals(text))
+                return color;
+
+        return null;
+    }
+
+    private static int maskOf(PiGlowLED led) {
+        return 1 << (led.getAddress() - 1);
+    }
+
+    private static int maskOf(List<PiGlowLED> leds) {
+        int mask = 0;
+        for (PiGlowLED led : leds)
+            mask |= maskOf(led);
+
+        return mask;
+    }
+}
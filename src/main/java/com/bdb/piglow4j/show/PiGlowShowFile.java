@@ -0,0 +1,181 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import com.bdb.piglow4j.PiGlow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A pre-rendered show that is memory mapped from a file written by <code>PiGlowShowFileWriter</code>. The file is never
+ * read onto the heap, so a show of any length opens immediately.
+ * <br>
+ * The file starts with a header followed by the frames and then the index. Each frame is the time since the previous
+ * frame followed by either the LEDs that changed or, at regular intervals, a keyframe with all of the LEDs. The index
+ * holds the time and offset of every keyframe, so finding the LED intensities at any time is a binary search of the
+ * index followed by at most one keyframe interval of changes.
+ * <pre>
+ * Header:   int magic "PGSH", short version, short LED count, int frame count, int index count, long index offset, long length
+ * Frame:    int milliseconds since the previous frame, byte change count or 0xFF for a keyframe,
+ *           then (byte LED index, byte intensity) for each change or 18 intensities for a keyframe
+ * Index:    long time, long offset of the keyframe
+ * </pre>
+ * All values are little endian. The intensities are the values written to the PiGlow, after gamma correction.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowShowFile {
+    static final int MAGIC = 'P' | 'G' << 8 | 'S' << 16 | 'H' << 24;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int FRAME_COUNT_OFFSET = 8;
+    static final int INDEX_COUNT_OFFSET = 12;
+    static final int INDEX_OFFSET_OFFSET = 16;
+    static final int LENGTH_OFFSET = 24;
+    static final int INDEX_ENTRY_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 5;
+    static final int KEYFRAME = 0xFF;
+    static final int LED_COUNT = PiGlow.PIGLOW_LED_COUNT;
+    private final ByteBuffer buffer;
+    private final int frameCount;
+    private final int indexCount;
+    private final int indexOffset;
+    private final long length;
+
+    private PiGlowShowFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a PiGlow show file");
+
+        if (buffer.getShort(4) != VERSION || buffer.getShort(6) != LED_COUNT)
+            throw new IOException("Unsupported PiGlow show file version " + buffer.getShort(4));
+
+        frameCount = buffer.getInt(FRAME_COUNT_OFFSET);
+        indexCount = buffer.getInt(INDEX_COUNT_OFFSET);
+        long offset = buffer.getLong(INDEX_OFFSET_OFFSET);
+        length = buffer.getLong(LENGTH_OFFSET);
+        if (offset < HEADER_SIZE || offset + (long)indexCount * INDEX_ENTRY_SIZE > buffer.limit())
+            throw new IOException("PiGlow show file is truncated");
+
+        indexOffset = (int)offset;
+    }
+
+    /**
+     * Map a show file into memory. The mapping remains valid until the show is garbage collected.
+     *
+     * @param file The show file
+     * @return The show
+     * @throws IOException The file could not be mapped or is not a show file
+     */
+    public static PiGlowShowFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("PiGlow show files are limited to 2 GB");
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return new PiGlowShowFile(mapped);
+        }
+    }
+
+    /**
+     * Get the length of the show.
+     *
+     * @return The length in milliseconds
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Get the number of frames in the show. Frames in which no LED changed are not stored.
+     *
+     * @return The frame count
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get the LED intensities at a time within the show.
+     *
+     * @param time The show time in milliseconds
+     * @param frame The array into which the 18 intensities are written, in LED address order
+     */
+    public void frameAt(long time, byte frame[]) {
+        FrameCursor cursor = new FrameCursor(this);
+        cursor.seek(time);
+        System.arraycopy(cursor.values, 0, frame, 0, LED_COUNT);
+    }
+
+    /**
+     * Create an animation that plays the show. Each player has its own position, so a show can be played by many
+     * animations at once.
+     *
+     * @return The player
+     */
+    public PiGlowShowFilePlayer createPlayer() {
+        return new PiGlowShowFilePlayer(this);
+    }
+
+    /**
+     * Create a view of the file for reading. The position of the view is not used, so it can be shared by a cursor.
+     */
+    ByteBuffer view() {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int framesEnd() {
+        return indexOffset;
+    }
+
+    /**
+     * Find the last keyframe at or before a time.
+     *
+     * @return The index entry or -1 if the time is before the first keyframe
+     */
+    int findKeyframe(long time) {
+        int low = 0;
+        int high = indexCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (keyframeTime(middle) <= time) {
+                found = middle;
+                low = middle + 1;
+            }
+            else
+                high = middle - 1;
+        }
+
+        return found;
+    }
+
+    long keyframeTime(int entry) {
+        return buffer.getLong(indexOffset + entry * INDEX_ENTRY_SIZE);
+    }
+
+    int keyframeOffset(int entry) {
+        return (int)buffer.getLong(indexOffset + entry * INDEX_ENTRY_SIZE + 8);
+    }
+}
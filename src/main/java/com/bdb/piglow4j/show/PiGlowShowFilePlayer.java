@@ -0,0 +1,124 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import com.bdb.piglow4j.PiGlowAnimation;
+import com.bdb.piglow4j.PiGlowLED;
+
+/**
+ * Animation that plays a <code>PiGlowShowFile</code> directly from the mapped file. To jump to another time in the show,
+ * create a new player, set its start time and replace the current player with it in the animator.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowShowFilePlayer extends PiGlowAnimation {
+    private final PiGlowShowFile file;
+    private final FrameCursor cursor;
+    private final PiGlowLED leds[] = new PiGlowLED[PiGlowShowFile.LED_COUNT];
+    private boolean loop;
+    private long startOffset;
+    private long startTime;
+    private volatile long showTime;
+    private long nextStepTime;
+    private boolean complete;
+
+    /**
+     * Constructor.
+     *
+     * @param file The show to play
+     */
+    PiGlowShowFilePlayer(PiGlowShowFile file) {
+        this.file = file;
+        cursor = new FrameCursor(file);
+        for (int i = 0; i < leds.length; i++)
+            leds[i] = PiGlowLED.findLED(i + 1);
+
+        this.addManagedLEDs(PiGlowLED.allLEDs());
+    }
+
+    /**
+     * Set whether the show starts again when the end is reached.
+     *
+     * @param loop True to loop the show
+     */
+    public void setLoop(boolean loop) {
+        this.loop = loop;
+    }
+
+    /**
+     * Set the time within the show at which it starts playing. This must be called before the player is added to an
+     * animator.
+     *
+     * @param showMillis The show time in milliseconds
+     */
+    public void setStartTime(long showMillis) {
+        startOffset = Math.max(0, showMillis);
+    }
+
+    /**
+     * Get the time within the show of the last step that was played.
+     *
+     * @return The show time in milliseconds
+     */
+    public long getShowTime() {
+        return showTime;
+    }
+
+    @Override
+    public void initialize(long now) {
+        startTime = now - startOffset;
+        nextStepTime = now;
+        complete = false;
+        cursor.seek(startOffset);
+    }
+
+    @Override
+    public long nextStepMillis(long now) {
+        if (complete)
+            return ANIMATION_COMPLETE;
+        else
+            return nextStepTime - now;
+    }
+
+    @Override
+    public void executeNextStep(long now) {
+        if (now < nextStepTime)
+            return;
+
+        long length = file.getLength();
+        long time = now - startTime;
+        if (loop && length > 0 && time >= length) {
+            startTime += time - time % length;
+            time %= length;
+            cursor.seek(time);
+        }
+        else
+            cursor.advance(time);
+
+        showTime = time;
+        for (int i = 0; i < leds.length; i++)
+            leds[i].setCorrectedIntensity(cursor.values[i] & 0xFF);
+
+        long next = cursor.nextFrameTime();
+        if (next >= 0)
+            nextStepTime = startTime + next;
+        else if (loop && length > 0)
+            nextStepTime = startTime + Math.max(length, time + 1);
+        else
+            complete = true;
+    }
+}
@@ -0,0 +1,312 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import com.bdb.piglow4j.PiGlowAnimation;
+import com.bdb.piglow4j.PiGlowLED;
+import com.bdb.piglow4j.PiGlowTimeFunction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Writes a <code>PiGlowShowFile</code>. Frames can be written directly, captured from the register writes that would
+ * be sent to the PiGlow, or rendered from an animation. Frames must be written in time order and frames that do not
+ * change any LED are not stored.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowShowFileWriter implements Closeable {
+    /**
+     * The default time between keyframes.
+     */
+    public static final long DEFAULT_KEYFRAME_INTERVAL = 1000;
+    private static final int BUFFER_SIZE = 65536;
+    private static final int COMMIT_REGISTER = 0x16;
+    private static final int MAX_STEPS_PER_FRAME = 1000;
+    private static final int RENDER_BATCH_SIZE = 4096;
+    private final FileChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final long keyframeInterval;
+    private final byte current[] = new byte[PiGlowShowFile.LED_COUNT];
+    private final byte pending[] = new byte[PiGlowShowFile.LED_COUNT];
+    private long filePosition = PiGlowShowFile.HEADER_SIZE;
+    private long indexTimes[] = new long[64];
+    private long indexOffsets[] = new long[64];
+    private int indexCount;
+    private int frameCount;
+    private long lastFrameTime = -1;
+    private long lastKeyframeTime;
+    private long lastOfferedTime = -1;
+    private long lastInterval;
+    private long length = -1;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param file The file to create or replace
+     * @param keyframeInterval The time between keyframes in milliseconds. Shorter intervals make seeking faster and the file larger.
+     * @throws IOException The file could not be created
+     */
+    public PiGlowShowFileWriter(Path file, long keyframeInterval) throws IOException {
+        if (keyframeInterval <= 0)
+            throw new IllegalArgumentException("Keyframe interval must be positive");
+
+        this.keyframeInterval = keyframeInterval;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Constructor that uses the default keyframe interval.
+     *
+     * @param file The file to create or replace
+     * @throws IOException The file could not be created
+     */
+    public PiGlowShowFileWriter(Path file) throws IOException {
+        this(file, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Set the length of the show. By default the length is the time of the last frame plus the interval between the
+     * last two frames, so that a looping show keeps its timing.
+     *
+     * @param millis The length in milliseconds
+     */
+    public void setLength(long millis) {
+        length = millis;
+    }
+
+    /**
+     * Write a frame of LED intensities.
+     *
+     * @param time The show time of the frame in milliseconds
+     * @param frame The 18 intensities in LED address order, after gamma correction
+     * @param offset The offset of the first intensity in the array
+     * @throws IOException The frame could not be written
+     */
+    public void writeFrame(long time, byte frame[], int offset) throws IOException {
+        if (time < lastOfferedTime || time < 0)
+            throw new IllegalArgumentException("Frames must be written in time order");
+
+        if (lastOfferedTime >= 0 && time > lastOfferedTime)
+            lastInterval = time - lastOfferedTime;
+
+        lastOfferedTime = time;
+
+        long delta = lastFrameTime < 0 ? time : time - lastFrameTime;
+        if (delta > 0xFFFFFFFFL)
+            throw new IllegalArgumentException("Frames cannot be more than 49 days apart");
+
+        ensureCapacity(PiGlowShowFile.RECORD_HEADER_SIZE + PiGlowShowFile.LED_COUNT * 2);
+        if (lastFrameTime < 0 || time - lastKeyframeTime >= keyframeInterval) {
+            addIndexEntry(time, filePosition + out.position());
+            out.putInt((int)delta);
+            out.put((byte)PiGlowShowFile.KEYFRAME);
+            for (int i = 0; i < current.length; i++) {
+                current[i] = frame[offset + i];
+                out.put(current[i]);
+            }
+
+            lastKeyframeTime = time;
+        }
+        else {
+            int changes = 0;
+            for (int i = 0; i < current.length; i++)
+                if (current[i] != frame[offset + i])
+                    changes++;
+
+            if (changes == 0)
+                return;
+
+            out.putInt((int)delta);
+            out.put((byte)changes);
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] != frame[offset + i]) {
+                    current[i] = frame[offset + i];
+                    out.put((byte)i);
+                    out.put(current[i]);
+                }
+            }
+        }
+
+        lastFrameTime = time;
+        frameCount++;
+    }
+
+    /**
+     * Capture a write to the PiGlow registers, such as one recorded from the I2C bus. The LED registers are held until
+     * the update register is written, at which point they are written as a frame.
+     *
+     * @param time The time of the write in milliseconds
+     * @param register The first register written
+     * @param data The bytes written
+     * @param offset The offset of the first byte in the array
+     * @param size The number of bytes written
+     * @throws IOException The frame could not be written
+     */
+    public void writeRegisters(long time, int register, byte data[], int offset, int size) throws IOException {
+        for (int i = 0; i < size; i++) {
+            int address = register + i;
+            if (address >= 1 && address <= PiGlowShowFile.LED_COUNT)
+                pending[address - 1] = data[offset + i];
+            else if (address == COMMIT_REGISTER)
+                writeFrame(time, pending, 0);
+        }
+    }
+
+    /**
+     * Render an animation offline and write its frames. The animation is run against a simulated clock, so this runs as
+     * fast as possible. Note that this changes the intensities of the LEDs.
+     *
+     * @param animation The animation to render, which must not be used by an animator
+     * @param startTime The show time of the start of the animation in milliseconds
+     * @param lengthMillis The maximum time to render
+     * @param frameInterval The time between frames
+     * @throws IOException The frames could not be written
+     */
+    public void writeAnimation(PiGlowAnimation animation, long startTime, long lengthMillis, long frameInterval) throws IOException {
+        if (frameInterval <= 0)
+            throw new IllegalArgumentException("Frame interval must be positive");
+
+        byte frame[] = new byte[PiGlowShowFile.LED_COUNT];
+        PiGlowLED leds[] = new PiGlowLED[PiGlowShowFile.LED_COUNT];
+        for (int i = 0; i < leds.length; i++)
+            leds[i] = PiGlowLED.findLED(i + 1);
+
+        animation.initialize(startTime);
+        for (long now = startTime; now <= startTime + lengthMillis; now += frameInterval) {
+            long next = animation.nextStepMillis(now);
+            for (int steps = 0; next != PiGlowAnimation.ANIMATION_COMPLETE && next <= 0 && steps < MAX_STEPS_PER_FRAME; steps++) {
+                animation.executeNextStep(now);
+                next = animation.nextStepMillis(now);
+            }
+
+            for (int i = 0; i < leds.length; i++)
+                frame[i] = (byte)leds[i].getIntensity();
+
+            writeFrame(now, frame, 0);
+            if (next == PiGlowAnimation.ANIMATION_COMPLETE)
+                break;
+        }
+    }
+
+    /**
+     * Render a time function and write its frames. Each frame is independent, so batches of frames are rendered in
+     * parallel and then written in order. LEDs that the function does not control are off. The LEDs are not changed.
+     *
+     * @param function The function to render
+     * @param startTime The show time of the start of the function in milliseconds
+     * @param lengthMillis The time to render
+     * @param frameInterval The time between frames
+     * @throws IOException The frames could not be written
+     */
+    public void writeTimeFunction(PiGlowTimeFunction function, long startTime, long lengthMillis, long frameInterval) throws IOException {
+        if (frameInterval <= 0)
+            throw new IllegalArgumentException("Frame interval must be positive");
+
+        long frames = lengthMillis / frameInterval + 1;
+        byte batch[][] = new byte[RENDER_BATCH_SIZE][PiGlowShowFile.LED_COUNT];
+        for (long first = 0; first < frames; first += RENDER_BATCH_SIZE) {
+            long base = first;
+            int count = (int)Math.min(RENDER_BATCH_SIZE, frames - first);
+            IntStream.range(0, count).parallel().forEach((i) -> {
+                int frame[] = new int[PiGlowShowFile.LED_COUNT];
+                function.render((base + i) * frameInterval, frame);
+                for (int led = 0; led < frame.length; led++)
+                    batch[i][led] = (byte)PiGlowLED.gammaCorrect(frame[led]);
+            });
+
+            for (int i = 0; i < count; i++)
+                writeFrame(startTime + (base + i) * frameInterval, batch[i], 0);
+        }
+    }
+
+    /**
+     * Write the index and header and close the file.
+     *
+     * @throws IOException The file could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        try {
+            long indexOffset = filePosition + out.position();
+            for (int i = 0; i < indexCount; i++) {
+                ensureCapacity(PiGlowShowFile.INDEX_ENTRY_SIZE);
+                out.putLong(indexTimes[i]);
+                out.putLong(indexOffsets[i]);
+            }
+            flush();
+
+            if (length < 0)
+                length = lastOfferedTime < 0 ? 0 : lastOfferedTime + lastInterval;
+
+            ByteBuffer header = ByteBuffer.allocate(PiGlowShowFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(PiGlowShowFile.MAGIC);
+            header.putShort(PiGlowShowFile.VERSION);
+            header.putShort((short)PiGlowShowFile.LED_COUNT);
+            header.putInt(frameCount);
+            header.putInt(indexCount);
+            header.putLong(indexOffset);
+            header.putLong(length);
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header, header.position());
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    private void addIndexEntry(long time, long offset) {
+        if (indexCount == indexTimes.length) {
+            indexTimes = Arrays.copyOf(indexTimes, indexCount * 2);
+            indexOffsets = Arrays.copyOf(indexOffsets, indexCount * 2);
+        }
+
+        indexTimes[indexCount] = time;
+        indexOffsets[indexCount] = offset;
+        indexCount++;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (out.remaining() < size)
+            flush();
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        if (filePosition + out.remaining() > Integer.MAX_VALUE)
+            throw new IOException("PiGlow show files are limited to 2 GB");
+
+        while (out.hasRemaining())
+            filePosition += channel.write(out, filePosition);
+
+        out.clear();
+    }
+}
@@ -0,0 +1,200 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowAnimation;
+import com.bdb.piglow4j.PiGlowAnimator;
+import com.bdb.piglow4j.PiGlowBlinker;
+import com.bdb.piglow4j.PiGlowLED;
+import com.bdb.piglow4j.transport.PiGlowMemoryTransport;
+
+/**
+ * Command line program that plays a show on the PiGlow. This is the entry point of the native executable built by the
+ * <code>native</code> Maven profile, but it runs the same way on the JVM.
+ * <pre>
+ * PiGlowShowRunner [--simulate] [--warmup N] [--millis N] [--stats] [show]
+ * </pre>
+ * The show is either a text show or a binary show file. Without a show all of the LEDs blink. The show plays until it
+ * ends or for the given number of milliseconds. <code>--simulate</code> plays the show on a memory transport and
+ * <code>--stats</code> reports the startup time and memory use, so that a native executable can be compared with the JVM.
+ * <code>--warmup</code> runs the animator against a discarding PiGlow for the given number of milliseconds before the
+ * show starts, so that the first frames are not slowed by the JIT.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowShowRunner {
+    private static final byte SHOW_FILE_MAGIC[] = "PGSH".getBytes(StandardCharsets.US_ASCII);
+    private static final Path PROCESS_STATUS = Paths.get("/proc/self/status");
+    private static final Logger logger = Logger.getLogger(PiGlowShowRunner.class.getName());
+
+    private PiGlowShowRunner() {
+    }
+
+    /**
+     * Check whether a file is a binary show file by its magic number.
+     *
+     * @param file The file
+     * @return True if the file is a binary show file, false if it should be compiled as a text show
+     * @throws IOException Failed to read the file
+     */
+    private static boolean isShowFile(Path file) throws IOException {
+        byte magic[] = new byte[SHOW_FILE_MAGIC.length];
+        try (InputStream in = Files.newInputStream(file)) {
+            int length = 0;
+            int count;
+            while (length < magic.length && (count = in.read(magic, length, magic.length - length)) > 0)
+                length += count;
+
+            return length == magic.length && Arrays.equals(magic, SHOW_FILE_MAGIC);
+        }
+    }
+
+    private static PiGlowAnimation loadShow(Path file) throws IOException, ParseException {
+        if (isShowFile(file))
+            return PiGlowShowFile.open(file).createPlayer();
+        else
+            return PiGlowShowCompiler.compile(file);
+    }
+
+    private static void printStats(String label) {
+        System.out.printf("%s: %d ms since JVM start%n", label, System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+        try {
+            for (String line : Files.readAllLines(PROCESS_STATUS))
+                if (line.startsWith("VmRSS") || line.startsWith("VmHWM"))
+                    System.out.println(line.replaceAll("\\s+", " "));
+        }
+        catch (IOException e) {
+            logger.log(Level.FINE, "Process status is not available", e);
+        }
+    }
+
+    private static long parseMillis(String args[], int index) {
+        if (index < args.length) {
+            try {
+                return Long.parseLong(args[index]);
+            }
+            catch (NumberFormatException e) {
+                // Fall through to the usage
+            }
+        }
+
+        usage();
+        return 0;
+    }
+
+    private static void usage() {
+        System.err.println("Usage: PiGlowShowRunner [--simulate] [--warmup N] [--millis N] [--stats] [show]");
+        System.exit(2);
+    }
+
+    /**
+     * Play a show.
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String args[]) {
+        boolean simulate = false;
+        boolean stats = false;
+        long millis = 0;
+        long warmUpMillis = 0;
+        Path file = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--simulate":
+                    simulate = true;
+                    break;
+
+                case "--stats":
+                    stats = true;
+                    break;
+
+                case "--millis":
+                    millis = parseMillis(args, ++i);
+                    break;
+
+                case "--warmup":
+                    warmUpMillis = parseMillis(args, ++i);
+                    break;
+
+                default:
+                    if (args[i].startsWith("--") || file != null)
+                        usage();
+
+                    file = Paths.get(args[i]);
+                    break;
+            }
+        }
+
+        if (simulate)
+            PiGlow.setTransport(new PiGlowMemoryTransport());
+
+        PiGlow piGlow = PiGlow.getInstance();
+        if (piGlow == null)
+            System.exit(1);
+
+        PiGlowAnimation animation;
+        try {
+            if (file != null)
+                animation = loadShow(file);
+            else
+                animation = new PiGlowBlinker(0, 1000, 0, 255, Integer.MAX_VALUE, PiGlowLED.allLEDs());
+        }
+        catch (IOException | ParseException e) {
+            logger.log(Level.SEVERE, "Failed to load the show " + file, e);
+            System.exit(1);
+            return;
+        }
+
+        if (warmUpMillis > 0)
+            PiGlowAnimator.warmUp(warmUpMillis);
+
+        PiGlowAnimator animator = new PiGlowAnimator(piGlow);
+        animator.addAnimation(animation);
+        animator.start();
+        if (stats)
+            printStats("First frame");
+
+        long start = System.currentTimeMillis();
+        try {
+            while (animator.isRunning() && (millis == 0 || System.currentTimeMillis() - start < millis))
+                Thread.sleep(50);
+
+            animator.stop();
+            animator.waitForTermination(1000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (stats)
+            printStats("Finished");
+    }
+}
@@ -0,0 +1,176 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.show;
+
+import com.bdb.piglow4j.PiGlowAnimator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays a show file and reloads it whenever the file changes. The new show is swapped in with
+ * <code>PiGlowAnimator.swapAnimations()</code>, continuing from the same show time, so editing a show does not blank the
+ * LEDs. If the file contains an error it is logged and the current show keeps playing. A show that does not loop stops
+ * the animator when it ends, in which case the reloaded show is played again from the start.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowShowWatcher implements Closeable {
+    private static final long SETTLE_MILLIS = 50;
+    private final PiGlowAnimator animator;
+    private final Path file;
+    private final long crossfadeMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile PiGlowShow show;
+    private volatile long reloadCount;
+    private static final Logger logger = Logger.getLogger(PiGlowShowWatcher.class.getName());
+
+    /**
+     * Constructor.
+     *
+     * @param animator The animator that plays the show
+     * @param file The show file
+     * @param crossfadeMillis The length of the crossfade when the show is reloaded
+     * @throws IOException The directory containing the file cannot be watched
+     */
+    public PiGlowShowWatcher(PiGlowAnimator animator, Path file, long crossfadeMillis) throws IOException {
+        this.animator = animator;
+        this.file = file.toAbsolutePath();
+        this.crossfadeMillis = crossfadeMillis;
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        thread = new Thread(this::watch, "PiGlowShowWatcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Compile the show, replace the animations of the animator with it and start watching the file.
+     *
+     * @throws IOException The show could not be read
+     * @throws ParseException The show contains an error
+     */
+    public void start() throws IOException, ParseException {
+        show = PiGlowShowCompiler.compile(file);
+        animator.swapAnimations(Collections.singletonList(show), 0);
+        if (!animator.isRunning())
+            animator.start();
+
+        thread.start();
+    }
+
+    /**
+     * Get the show that is playing.
+     *
+     * @return The show
+     */
+    public PiGlowShow getShow() {
+        return show;
+    }
+
+    /**
+     * Get the number of times the show has been reloaded.
+     *
+     * @return The reload count
+     */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Stop watching the file. The show keeps playing.
+     *
+     * @throws IOException The watch service could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && file.getFileName().equals(context))
+                        changed = true;
+                }
+
+                key.reset();
+                if (!changed)
+                    continue;
+
+                //
+                // Editors often write a file in several steps, so wait for the writes to settle and drain their events
+                //
+                WatchKey more;
+                while ((more = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    more.pollEvents();
+                    more.reset();
+                }
+
+                reload();
+            }
+        }
+        catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.fine("Show watcher stopped");
+        }
+    }
+
+    private void reload() {
+        try {
+            PiGlowShow updated = PiGlowShowCompiler.compile(file);
+
+            //
+            // A show that has ended is played again from the start, otherwise it would seek to its end and stop at once
+            //
+            boolean restart = !animator.isRunning() || show.isComplete();
+            updated.setStartTime(restart ? 0 : show.getShowTime());
+            animator.swapAnimations(Collections.singletonList(updated), crossfadeMillis);
+            if (!animator.isRunning())
+                animator.start();
+
+            show = updated;
+            reloadCount++;
+            logger.log(Level.INFO, "Reloaded show {0}", file);
+        }
+        catch (IOException | ParseException e) {
+            logger.log(Level.WARNING, "Failed to reload show " + file, e);
+        }
+    }
+}
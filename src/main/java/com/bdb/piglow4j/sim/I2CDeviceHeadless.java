@@ -0,0 +1,241 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.sim;
+
+import com.bdb.piglow4j.PiGlow;
+
+import java.io.IOException;
+
+import com.pi4j.io.i2c.I2CDevice;
+
+/**
+ * A mock I2CDevice that keeps the register contents of a simulated PiGlow in memory without displaying them.
+ *
+ * @author Bruce Beisel
+ */
+public final class I2CDeviceHeadless implements I2CDevice {
+    private static final int REGISTER_COUNT = 0x17;
+    private static final int FIRST_LED_ADDR = 0x1;
+    private static final int COMMIT_ADDR = 0x16;
+    private final byte registers[] = new byte[REGISTER_COUNT];
+    private final byte committed[] = new byte[PiGlow.PIGLOW_LED_COUNT];
+    private long writeCount;
+    private long commitCount;
+    private boolean failing;
+
+    /**
+     * Get the intensity of an LED that was last committed.
+     *
+     * @param address The PiGlow address of the LED
+     * @return The intensity
+     */
+    public synchronized int getCommittedIntensity(int address) {
+        return committed[address - FIRST_LED_ADDR] & 0xFF;
+    }
+
+    /**
+     * Get the number of writes that have been made to this device.
+     *
+     * @return The write count
+     */
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Get the number of commits that have been made to this device.
+     *
+     * @return The commit count
+     */
+    public synchronized long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * Make the writes to this device fail, which simulates a problem with the I2C bus.
+     *
+     * @param fail True if writes should throw an IOException
+     */
+    public synchronized void setFailing(boolean fail) {
+        failing = fail;
+    }
+
+    /**
+     * Return the registers to their power on state, which simulates the board losing power.
+     */
+    public synchronized void powerCycle() {
+        for (int i = 0; i < registers.length; i++)
+            registers[i] = 0;
+
+        for (int i = 0; i < committed.length; i++)
+            committed[i] = 0;
+    }
+
+    /**
+     * Get whether the PiGlow outputs have been enabled.
+     *
+     * @return True if the enable output register is set
+     */
+    public synchronized boolean isEnabled() {
+        return registers[0] == 0x1;
+    }
+
+    /**
+     * Not used by the PiGlow simulator.
+     * 
+     * @param b Not used
+     * 
+     * @throws IOException Never thrown
+     */
+    @Override
+    public void write(byte b) throws IOException {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Not used by the PiGlow simulator.
+     * 
+     * @param bytes Not used
+     * @param offset Not used
+     * @param size Not used
+     * 
+     * @throws IOException Never thrown
+     */
+    @Override
+    public void write(byte[] bytes, int offset, int size) throws IOException {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Write a single byte to the simulated registers.
+     * 
+     * @param address The address to write
+     * @param b The byte to write
+     * @throws IOException If the device has been set to fail
+     */
+    @Override
+    public synchronized void write(int address, byte b) throws IOException {
+        checkFailing();
+        writeRegister(address, b);
+        writeCount++;
+    }
+
+    /**
+     * Write an array of bytes to the simulated registers.
+     * 
+     * @param address The address to write
+     * @param bytes The array of bytes to write
+     * @param offset The offset within the array to start writing
+     * @param size The number of bytes to write
+     * @throws IOException If the device has been set to fail
+     */
+    @Override
+    public synchronized void write(int address, byte[] bytes, int offset, int size) throws IOException {
+        checkFailing();
+        for (int i = 0; i < size; i++)
+            writeRegister(address + i, bytes[offset + i]);
+
+        writeCount++;
+    }
+
+    private void checkFailing() throws IOException {
+        if (failing)
+            throw new IOException("Simulated I2C failure");
+    }
+
+    private void writeRegister(int address, byte b) {
+        if (address < 0 || address >= REGISTER_COUNT)
+            return;
+
+        registers[address] = b;
+
+        if (address == COMMIT_ADDR) {
+            System.arraycopy(registers, FIRST_LED_ADDR, committed, 0, committed.length);
+            commitCount++;
+        }
+    }
+
+    /**
+     * Not used by the PiGlow simulator.
+     * 
+     * @return Never returns
+     * 
+     * @throws IOException Not thrown
+     */
+    @Override
+    public int read() throws IOException {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Not used by the PiGlow simulator.
+     * 
+     * @param bytes Not used
+     * @param i Not used
+     * @param i1 Not used
+     * @return Never returns
+     * @throws IOException Never thrown
+     */
+    @Override
+    public int read(byte[] bytes, int i, int i1) throws IOException {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Not used by the PiGlow simulator.
+     * 
+     * @param i Not used
+     * @return Never returns
+     * @throws IOException  Never thrown
+     */
+    @Override
+    public int read(int i) throws IOException {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Not used by the PiGlow simulator.
+     * 
+     * @param i Not used
+     * @param bytes Not used
+     * @param i1 Not used
+     * @param i2 Not used
+     * @return Never returns
+     * @throws IOException  Never thrown
+     */
+    @Override
+    public int read(int i, byte[] bytes, int i1, int i2) throws IOException {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    /**
+     * Not used by the PiGlow simulator.
+     * 
+     * @param i Not used
+     * @param bytes Not used
+     * @param i1 Not used
+     * @param bytes1 Not used
+     * @param i2 Not used
+     * @param i3 Not used
+     * @return Never returns
+     * @throws IOException  Never thrown
+     */
+    @Override
+    public int read(byte[] bytes, int i, int i1, byte[] bytes1, int i2, int i3) throws IOException {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+}
@@ -106,7 +106,7 @@ public final class I2CDeviceSwing implements I2CDevice {
         //
         // Copy the bytes to a local buffer and pass them on to the GUI
         //
-        byte buffer[] = Arrays.copyOfRange(bytes, offset, size - offset);
+        byte buffer[] = Arrays.copyOfRange(bytes, offset, offset + size);
         gui.processBytes(address, buffer, size);
     }
 
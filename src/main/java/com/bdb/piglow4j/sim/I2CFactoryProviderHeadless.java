@@ -0,0 +1,53 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.sim;
+
+import java.io.IOException;
+
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CFactoryProvider;
+
+/**
+ * I2CFactoryProvider that creates an I2CBus for a PiGlow simulator that does not have a GUI. This is useful for automated
+ * tests and for running large numbers of animators without a display.
+ *
+ * @author Bruce Beisel
+ */
+public final class I2CFactoryProviderHeadless implements I2CFactoryProvider {
+    private final I2CBusHeadless bus = new I2CBusHeadless();
+
+    /**
+     * Return the I2CBus for a given address.
+     * 
+     * @param i The address which is ignored
+     * @return The I2CBus for the simulator
+     * @throws IOException Never thrown, but required
+     */
+    @Override
+    public I2CBus getBus(int i) throws IOException {
+        return bus;
+    }
+
+    /**
+     * Get the simulated PiGlow device so that its registers can be examined.
+     *
+     * @return The simulated device
+     */
+    public I2CDeviceHeadless getDevice() {
+        return bus.getPiGlowDevice();
+    }
+}
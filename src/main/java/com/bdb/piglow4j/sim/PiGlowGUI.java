@@ -82,7 +82,9 @@ public final class PiGlowGUI {
         // If the board is not on, then any other command is ignored
         //
         if (!on) {
-            logger.info("Ignoring bytes because board is OFF");
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, "Ignoring bytes for address {0} because board is OFF", address);
+
             return;
         }
 
@@ -99,11 +101,9 @@ public final class PiGlowGUI {
             rightArmOn = true;
         }
         else if (address == 0x16 && ((int)buffer[0] & 0xFF) == 0xFF) {
-            logger.fine("Committing");
             component.commit();
         }
         else if (address >= 0x1 && address <= 0x12) {
-            logger.fine("Getting intensities");
             for (int i = 0; address + i <= 0x12 && i < length; i++)
                 intensities[address + i - 1] = ((int)buffer[i] & 0xFF);
 
@@ -24,7 +24,6 @@ import com.bdb.piglow4j.PiGlowLED;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.util.logging.Logger;
 
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
@@ -45,7 +44,6 @@ public final class PiGlowJComponent extends JPanel {
     private final Color oranges[] = new Color[256];
     private final Color reds[] = new Color[256];
     private final ImageIcon background;
-    private static final Logger logger = Logger.getLogger(PiGlowJComponent.class.getName());
 
     /**
      * Class the hold the information about each simulated LED.
@@ -168,7 +166,6 @@ public final class PiGlowJComponent extends JPanel {
      * @param intensities The intensities
      */
     public void setIntensities(int[] intensities) {
-        logger.fine("Receiving intensities");
         for (int i = 0; i < leds.length; i++) {
             leds[i].intensity = intensities[i];
         }
@@ -178,7 +175,6 @@ public final class PiGlowJComponent extends JPanel {
      * Commit the new intensity values for all of the LEDs.
      */
     public void commit() {
-        logger.fine("Committing");
         //
         // Set the background color of each LED JLabel
         //
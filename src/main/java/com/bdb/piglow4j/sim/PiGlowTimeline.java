@@ -0,0 +1,198 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.sim;
+
+import java.io.IOException;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowTransport;
+
+/**
+ * Ring buffer of the frames written to a PiGlow, with the time each frame was committed and how long it took to write.
+ * Frames are recorded by wrapping the transport of the PiGlow, so the timeline works with any transport, including a
+ * real board:
+ * <pre>
+ * PiGlowTimeline timeline = new PiGlowTimeline(4096);
+ * PiGlow.setTransport(timeline.wrap(new PiGlowPi4jTransport(1)));
+ * </pre>
+ * Recording copies the 18 intensities into primitive arrays and does not allocate. There is a single writer, the thread
+ * that writes to the PiGlow, and any number of readers such as a <code>PiGlowTimelinePanel</code>.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowTimeline {
+    private final int mask;
+    private final long times[];
+    private final long latencies[];
+    private final byte frames[];
+    private final byte registers[] = new byte[PiGlow.PIGLOW_LED_COUNT];
+    private long pendingLatency;
+    private volatile long count;
+
+    /**
+     * Transport that records the frames that are committed through it.
+     */
+    private final class Recorder implements PiGlowTransport {
+        private final PiGlowTransport transport;
+
+        private Recorder(PiGlowTransport transport) {
+            this.transport = transport;
+        }
+
+        @Override
+        public void write(int register, byte value) throws IOException {
+            long start = System.nanoTime();
+            transport.write(register, value);
+            long end = System.nanoTime();
+            pendingLatency += end - start;
+            store(register, value, end);
+        }
+
+        @Override
+        public void write(int register, byte buffer[], int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            transport.write(register, buffer, offset, length);
+            long end = System.nanoTime();
+            pendingLatency += end - start;
+            for (int i = 0; i < length; i++)
+                store(register + i, buffer[offset + i], end);
+        }
+
+        @Override
+        public void writeFrame(byte frame[], int offset) throws IOException {
+            long start = System.nanoTime();
+            transport.writeFrame(frame, offset);
+            long end = System.nanoTime();
+            System.arraycopy(frame, offset, registers, 0, registers.length);
+            pendingLatency += end - start;
+            commit(end);
+        }
+
+        @Override
+        public void close() throws IOException {
+            transport.close();
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity The number of frames that are kept, which is rounded up to a power of two
+     */
+    public PiGlowTimeline(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 24))
+            throw new IllegalArgumentException("Capacity must be from 1 to " + (1 << 24));
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        mask = size - 1;
+        times = new long[size];
+        latencies = new long[size];
+        frames = new byte[size * PiGlow.PIGLOW_LED_COUNT];
+    }
+
+    /**
+     * Create a transport that records the frames committed through another transport.
+     *
+     * @param transport The transport that does the writing
+     * @return The recording transport
+     */
+    public PiGlowTransport wrap(PiGlowTransport transport) {
+        return new Recorder(transport);
+    }
+
+    /**
+     * Get the number of frames that are kept.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Get the number of frames that have been recorded, including those that have been overwritten.
+     *
+     * @return The number of frames
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Check whether a frame is still in the buffer. A frame that is valid before it is read and after it is read was not
+     * overwritten while it was being read.
+     *
+     * @param index The index of the frame
+     * @return True if the frame can be read
+     */
+    public boolean isAvailable(long index) {
+        long end = count;
+        return index < end && index > end - getCapacity();
+    }
+
+    /**
+     * Get the time at which a frame was committed.
+     *
+     * @param index The index of the frame
+     * @return The <code>System.nanoTime()</code> of the commit
+     */
+    public long getTime(long index) {
+        return times[(int)index & mask];
+    }
+
+    /**
+     * Get the time spent writing a frame, including the commit.
+     *
+     * @param index The index of the frame
+     * @return The write time in nanoseconds
+     */
+    public long getLatency(long index) {
+        return latencies[(int)index & mask];
+    }
+
+    /**
+     * Get the register value of an LED in a frame.
+     *
+     * @param index The index of the frame
+     * @param led The index of the LED, which is its address - 1
+     * @return The register value
+     */
+    public int getIntensity(long index, int led) {
+        return frames[((int)index & mask) * PiGlow.PIGLOW_LED_COUNT + led] & 0xFF;
+    }
+
+    private void store(int register, byte value, long time) {
+        int led = register - PiGlowTransport.FIRST_LED_REGISTER;
+        if (led >= 0 && led < registers.length)
+            registers[led] = value;
+        else if (register == PiGlowTransport.COMMIT_REGISTER && value == (byte)0xFF)
+            commit(time);
+    }
+
+    private void commit(long time) {
+        long index = count;
+        int slot = (int)index & mask;
+        times[slot] = time;
+        latencies[slot] = pendingLatency;
+        System.arraycopy(registers, 0, frames, slot * PiGlow.PIGLOW_LED_COUNT, registers.length);
+        pendingLatency = 0;
+        count = index + 1;
+    }
+}
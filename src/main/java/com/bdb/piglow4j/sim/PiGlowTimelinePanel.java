@@ -0,0 +1,261 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.sim;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+import javax.swing.Timer;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowColor;
+import com.bdb.piglow4j.PiGlowLED;
+
+/**
+ * Strip chart of the last few seconds of a <code>PiGlowTimeline</code>. There is a row for the intensity of each LED,
+ * followed by the interval between frames and the time taken to write each frame. Gaps in the interval chart are
+ * periods in which nothing was written, and bars drawn in red are off the scale.
+ * <br>
+ * The chart is kept in an image that is scrolled by one column every 20 milliseconds, so that only the new column is
+ * drawn. All of the work is done on the Swing event thread, the thread writing to the PiGlow only fills the timeline.
+ *
+ * @author Bruce Beisel
+ */
+@SuppressWarnings("serial")
+public final class PiGlowTimelinePanel extends JPanel {
+    private static final int COLUMN_MILLIS = 20;
+    private static final long COLUMN_NANOS = TimeUnit.MILLISECONDS.toNanos(COLUMN_MILLIS);
+    private static final int ROW_HEIGHT = 10;
+    private static final int CHART_HEIGHT = 50;
+    private static final int LABEL_WIDTH = 110;
+    private static final int BACKGROUND = 0x202020;
+    private static final int SEPARATOR = 0x404040;
+    private static final int INTERVAL_COLOR = 0x40C0FF;
+    private static final int LATENCY_COLOR = 0xFFC040;
+    private static final int CLIPPED_COLOR = 0xFF3030;
+    private final PiGlowTimeline timeline;
+    private final BufferedImage image;
+    private final Graphics2D imageGraphics;
+    private final Timer timer;
+    private final int columns;
+    private final int ledColors[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private final int column[];
+    private final int intensities[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private final int frame[] = new int[PiGlow.PIGLOW_LED_COUNT];
+    private long intervalScale = TimeUnit.MILLISECONDS.toNanos(50);
+    private long latencyScale = TimeUnit.MILLISECONDS.toNanos(1);
+    private long nextIndex;
+    private long columnEnd;
+    private long lastFrameTime;
+
+    /**
+     * Constructor.
+     *
+     * @param timeline The timeline to plot
+     * @param seconds The number of seconds that are shown
+     */
+    public PiGlowTimelinePanel(PiGlowTimeline timeline, int seconds) {
+        this.timeline = timeline;
+        columns = seconds * 1000 / COLUMN_MILLIS;
+        int height = PiGlow.PIGLOW_LED_COUNT * ROW_HEIGHT + 2 * CHART_HEIGHT;
+        image = new BufferedImage(columns, height, BufferedImage.TYPE_INT_RGB);
+        imageGraphics = image.createGraphics();
+        imageGraphics.setColor(new Color(BACKGROUND));
+        imageGraphics.fillRect(0, 0, columns, height);
+        column = new int[height];
+
+        for (PiGlowLED led : PiGlowLED.allLEDs())
+            ledColors[led.getAddress() - 1] = colorOf(led.getColor());
+
+        setBackground(Color.BLACK);
+        setPreferredSize(new Dimension(LABEL_WIDTH + columns, height));
+        timer = new Timer(COLUMN_MILLIS, (event) -> advance(System.nanoTime()));
+    }
+
+    /**
+     * Set the values at the top of the interval and write time charts.
+     *
+     * @param intervalMillis The frame interval at the top of the interval chart
+     * @param latencyMicros The write time at the top of the write time chart
+     */
+    public void setScales(long intervalMillis, long latencyMicros) {
+        intervalScale = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        latencyScale = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    private static int colorOf(PiGlowColor color) {
+        switch (color) {
+            case RED:
+                return 0xFF0000;
+            case ORANGE:
+                return 0xFF8000;
+            case YELLOW:
+                return 0xFFFF00;
+            case GREEN:
+                return 0x00FF00;
+            case BLUE:
+                return 0x4040FF;
+            default:
+                return 0xFFFFFF;
+        }
+    }
+
+    /**
+     * Scroll the chart up to the current time, drawing one column for each 20 milliseconds that have passed. This is
+     * called by a timer while the panel is displayed and can be called directly to draw the chart offscreen.
+     *
+     * @param now The current <code>System.nanoTime()</code>
+     */
+    public void advance(long now) {
+        if (columnEnd == 0) {
+            columnEnd = now;
+            nextIndex = timeline.getCount();
+            return;
+        }
+
+        long elapsed = (now - columnEnd) / COLUMN_NANOS;
+        if (elapsed <= 0)
+            return;
+
+        //
+        // After a long pause only the columns that fit in the chart are drawn
+        //
+        if (elapsed > columns) {
+            columnEnd += (elapsed - columns) * COLUMN_NANOS;
+            elapsed = columns;
+        }
+
+        imageGraphics.copyArea((int)elapsed, 0, columns - (int)elapsed, image.getHeight(), (int)-elapsed, 0);
+        for (int x = columns - (int)elapsed; x < columns; x++) {
+            columnEnd += COLUMN_NANOS;
+            drawColumn(x, columnEnd);
+        }
+
+        repaint();
+    }
+
+    /**
+     * Draw the frames that were committed before the end of a column.
+     *
+     * @param x The column
+     * @param end The time at the end of the column
+     */
+    private void drawColumn(int x, long end) {
+        int frames = 0;
+        long maxInterval = 0;
+        long maxLatency = 0;
+
+        //
+        // Frames that were overwritten before they were read are skipped
+        //
+        long oldest = timeline.getCount() - timeline.getCapacity() + 1;
+        if (nextIndex < oldest)
+            nextIndex = oldest;
+
+        Arrays.fill(column, BACKGROUND);
+        for (; nextIndex < timeline.getCount(); nextIndex++) {
+            long time = timeline.getTime(nextIndex);
+            if (time - end >= 0)
+                break;
+
+            long latency = timeline.getLatency(nextIndex);
+            for (int led = 0; led < frame.length; led++)
+                frame[led] = timeline.getIntensity(nextIndex, led);
+
+            if (!timeline.isAvailable(nextIndex))
+                continue;
+
+            //
+            // The brightest value of each LED is shown so that short flashes are not lost
+            //
+            for (int led = 0; led < frame.length; led++)
+                intensities[led] = frames == 0 ? frame[led] : Math.max(intensities[led], frame[led]);
+
+            if (lastFrameTime != 0)
+                maxInterval = Math.max(maxInterval, time - lastFrameTime);
+
+            maxLatency = Math.max(maxLatency, latency);
+            lastFrameTime = time;
+            frames++;
+        }
+
+        //
+        // The LEDs keep their last intensity in columns without frames
+        //
+        for (int led = 0; led < intensities.length; led++) {
+            int top = led * ROW_HEIGHT;
+            int bar = (intensities[led] * (ROW_HEIGHT - 1) + 254) / 255;
+            for (int y = 0; y < bar; y++)
+                column[top + ROW_HEIGHT - 2 - y] = ledColors[led];
+
+            column[top + ROW_HEIGHT - 1] = SEPARATOR;
+        }
+
+        int top = PiGlow.PIGLOW_LED_COUNT * ROW_HEIGHT;
+        if (frames > 0 && maxInterval > 0)
+            drawBar(top, maxInterval, intervalScale, INTERVAL_COLOR);
+
+        if (frames > 0)
+            drawBar(top + CHART_HEIGHT, maxLatency, latencyScale, LATENCY_COLOR);
+
+        column[top + CHART_HEIGHT - 1] = SEPARATOR;
+        image.setRGB(x, 0, 1, column.length, column, 0, 1);
+    }
+
+    private void drawBar(int top, long value, long scale, int color) {
+        int height = CHART_HEIGHT - 1;
+        int bar = (int)Math.min(height, (value * height + scale - 1) / scale);
+        int barColor = value > scale ? CLIPPED_COLOR : color;
+        for (int y = 0; y < bar; y++)
+            column[top + height - 1 - y] = barColor;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        g.drawImage(image, LABEL_WIDTH, 0, null);
+
+        g.setColor(Color.LIGHT_GRAY);
+        int baseline = ROW_HEIGHT - 1;
+        for (PiGlowLED led : PiGlowLED.allLEDs())
+            g.drawString(led.getArm() + " " + led.getColor(), 2, (led.getAddress() - 1) * ROW_HEIGHT + baseline);
+
+        int top = PiGlow.PIGLOW_LED_COUNT * ROW_HEIGHT;
+        g.drawString("Interval", 2, top + 12);
+        g.drawString(TimeUnit.NANOSECONDS.toMillis(intervalScale) + " ms", 2, top + 24);
+        g.drawString("Write time", 2, top + CHART_HEIGHT + 12);
+        g.drawString(TimeUnit.NANOSECONDS.toMicros(latencyScale) + " us", 2, top + CHART_HEIGHT + 24);
+    }
+}
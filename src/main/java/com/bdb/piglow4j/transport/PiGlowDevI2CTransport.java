@@ -0,0 +1,110 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.transport;
+
+import java.io.IOException;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowTransport;
+import com.pi4j.jni.I2C;
+
+/**
+ * Transport that writes to a /dev/i2c-N file descriptor through the pi4j JNI functions directly, bypassing the pi4j bus
+ * and device objects. A frame is written as a single transfer that covers the LED intensities, the arm enables and the
+ * commit register, rather than a block write followed by a commit.
+ * <br>
+ * This class is not thread safe, the <code>PiGlow</code> serializes the writes.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowDevI2CTransport implements PiGlowTransport {
+    private static final int FRAME_REGISTERS = PiGlow.PIGLOW_LED_COUNT + 4;
+    private static final byte ENABLED = (byte)0xFF;
+    private final String path;
+    private final byte buffer[] = new byte[FRAME_REGISTERS + 1];
+    private int fd;
+
+    /**
+     * Constructor.
+     *
+     * @param bus The I2C bus number
+     * @throws IOException Failed to open the I2C device file
+     */
+    public PiGlowDevI2CTransport(int bus) throws IOException {
+        path = devicePath(bus);
+        fd = I2C.i2cOpen(path);
+        if (fd < 0)
+            throw new IOException("Failed to open " + path);
+    }
+
+    /**
+     * Get the path of the device file of an I2C bus.
+     *
+     * @param bus The I2C bus number
+     * @return The path
+     */
+    static String devicePath(int bus) {
+        return "/dev/i2c-" + bus;
+    }
+
+    @Override
+    public void write(int register, byte value) throws IOException {
+        buffer[0] = (byte)register;
+        buffer[1] = value;
+        transfer(2);
+    }
+
+    @Override
+    public void write(int register, byte values[], int offset, int length) throws IOException {
+        if (length > FRAME_REGISTERS)
+            throw new IllegalArgumentException("Cannot write more than " + FRAME_REGISTERS + " registers at once");
+
+        buffer[0] = (byte)register;
+        System.arraycopy(values, offset, buffer, 1, length);
+        transfer(length + 1);
+    }
+
+    @Override
+    public void writeFrame(byte frame[], int offset) throws IOException {
+        //
+        // The arm enables between the last LED and the commit register are always on, so they are rewritten with the
+        // same value to make the whole frame one transfer
+        //
+        buffer[0] = (byte)FIRST_LED_REGISTER;
+        System.arraycopy(frame, offset, buffer, 1, PiGlow.PIGLOW_LED_COUNT);
+        for (int i = PiGlow.PIGLOW_LED_COUNT + 1; i <= FRAME_REGISTERS; i++)
+            buffer[i] = ENABLED;
+
+        transfer(FRAME_REGISTERS + 1);
+    }
+
+    private void transfer(int length) throws IOException {
+        if (fd < 0)
+            throw new IOException(path + " is closed");
+
+        if (I2C.i2cWriteBytesDirect(fd, PiGlowPi4jTransport.I2C_ADDRESS, length, 0, buffer) < 0)
+            throw new IOException("Failed to write to the PiGlow on " + path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fd >= 0) {
+            I2C.i2cClose(fd);
+            fd = -1;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.transport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.bdb.piglow4j.PiGlowTransport;
+import com.bdb.piglow4j.PiGlowTransportProvider;
+
+/**
+ * Provider of the "dev-i2c" transport, which is available when the pi4j JNI library is on the class path and the device
+ * file of the bus exists.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowDevI2CTransportProvider implements PiGlowTransportProvider {
+    @Override
+    public String getName() {
+        return "dev-i2c";
+    }
+
+    @Override
+    public boolean isAvailable(int bus) {
+        return PiGlowPi4jTransportProvider.isClassPresent("com.pi4j.jni.I2C") && Files.exists(Paths.get(PiGlowDevI2CTransport.devicePath(bus)));
+    }
+
+    @Override
+    public PiGlowTransport open(int bus) throws IOException {
+        return new PiGlowDevI2CTransport(bus);
+    }
+}
@@ -0,0 +1,104 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.transport;
+
+import com.bdb.piglow4j.PiGlow;
+import com.bdb.piglow4j.PiGlowTransport;
+
+/**
+ * Transport that keeps the registers in memory. It is useful for automated tests and for running without a PiGlow, and
+ * has no dependency on pi4j.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowMemoryTransport implements PiGlowTransport {
+    private static final int REGISTER_COUNT = COMMIT_REGISTER + 1;
+    private final byte registers[] = new byte[REGISTER_COUNT];
+    private final byte committed[] = new byte[PiGlow.PIGLOW_LED_COUNT];
+    private long writeCount;
+    private long commitCount;
+
+    /**
+     * Get the intensity of an LED as of the last commit.
+     *
+     * @param address The address of the LED
+     * @return The committed intensity
+     */
+    public synchronized int getCommittedIntensity(int address) {
+        return committed[address - FIRST_LED_REGISTER] & 0xFF;
+    }
+
+    /**
+     * Get the value of a register.
+     *
+     * @param register The register
+     * @return The value that was last written to the register
+     */
+    public synchronized int getRegister(int register) {
+        return registers[register] & 0xFF;
+    }
+
+    /**
+     * Get the number of writes.
+     *
+     * @return The number of writes
+     */
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Get the number of commits.
+     *
+     * @return The number of commits
+     */
+    public synchronized long getCommitCount() {
+        return commitCount;
+    }
+
+    @Override
+    public synchronized void write(int register, byte value) {
+        writeRegister(register, value);
+        writeCount++;
+    }
+
+    @Override
+    public synchronized void write(int register, byte buffer[], int offset, int length) {
+        for (int i = 0; i < length; i++)
+            writeRegister(register + i, buffer[offset + i]);
+
+        writeCount++;
+    }
+
+    @Override
+    public synchronized void writeFrame(byte frame[], int offset) {
+        System.arraycopy(frame, offset, registers, FIRST_LED_REGISTER, PiGlow.PIGLOW_LED_COUNT);
+        writeRegister(COMMIT_REGISTER, (byte)0xFF);
+        writeCount++;
+    }
+
+    private void writeRegister(int register, byte value) {
+        if (register < 0 || register >= REGISTER_COUNT)
+            return;
+
+        registers[register] = value;
+        if (register == COMMIT_REGISTER) {
+            System.arraycopy(registers, FIRST_LED_REGISTER, committed, 0, committed.length);
+            commitCount++;
+        }
+    }
+}
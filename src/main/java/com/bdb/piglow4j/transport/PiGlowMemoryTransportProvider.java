@@ -0,0 +1,43 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.transport;
+
+import com.bdb.piglow4j.PiGlowTransport;
+import com.bdb.piglow4j.PiGlowTransportProvider;
+
+/**
+ * Provider of the "memory" transport, which is always available. It is only used when selected with the
+ * <code>piglow4j.transport</code> system property.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowMemoryTransportProvider implements PiGlowTransportProvider {
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public boolean isAvailable(int bus) {
+        return true;
+    }
+
+    @Override
+    public PiGlowTransport open(int bus) {
+        return new PiGlowMemoryTransport();
+    }
+}
@@ -0,0 +1,57 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.transport;
+
+import java.io.IOException;
+
+import com.bdb.piglow4j.PiGlowTransport;
+import com.pi4j.io.i2c.I2CDevice;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Transport that writes through the pi4j <code>I2CFactory</code>. This is the default transport, and the one used by the
+ * simulators, which replace the pi4j factory.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowPi4jTransport implements PiGlowTransport {
+    /**
+     * The I2C address of the PiGlow
+     */
+    public static final int I2C_ADDRESS = 0x54;
+    private final I2CDevice device;
+
+    /**
+     * Constructor.
+     *
+     * @param bus The I2C bus number
+     * @throws IOException Failed to open the I2C bus
+     */
+    public PiGlowPi4jTransport(int bus) throws IOException {
+        device = I2CFactory.getInstance(bus).getDevice(I2C_ADDRESS);
+    }
+
+    @Override
+    public void write(int register, byte value) throws IOException {
+        device.write(register, value);
+    }
+
+    @Override
+    public void write(int register, byte buffer[], int offset, int length) throws IOException {
+        device.write(register, buffer, offset, length);
+    }
+}
@@ -0,0 +1,60 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j.transport;
+
+import java.io.IOException;
+
+import com.bdb.piglow4j.PiGlowTransport;
+import com.bdb.piglow4j.PiGlowTransportProvider;
+
+/**
+ * Provider of the "pi4j" transport, which is available when pi4j is on the class path.
+ *
+ * @author Bruce Beisel
+ */
+public final class PiGlowPi4jTransportProvider implements PiGlowTransportProvider {
+    @Override
+    public String getName() {
+        return "pi4j";
+    }
+
+    @Override
+    public boolean isAvailable(int bus) {
+        return isClassPresent("com.pi4j.io.i2c.I2CFactory");
+    }
+
+    @Override
+    public PiGlowTransport open(int bus) throws IOException {
+        return new PiGlowPi4jTransport(bus);
+    }
+
+    /**
+     * Check for a class without initializing it.
+     *
+     * @param name The name of the class
+     * @return True if the class can be loaded
+     */
+    static boolean isClassPresent(String name) {
+        try {
+            Class.forName(name, false, PiGlowPi4jTransportProvider.class.getClassLoader());
+            return true;
+        }
+        catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.ByteArrayInputStream;
+
+import com.bdb.piglow4j.audio.PiGlowAudioAnalyzer;
+
+/**
+ * Measures how many FFT hops per second the audio analyzer can process, using a synthetic stereo signal made of a bass
+ * tone in the left channel and a treble tone in the right channel. The analyzer must keep up with 44100 / 512, about 86
+ * hops per second, to run in real time.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JAudioBenchmark {
+    private static final float SAMPLE_RATE = 44100.0F;
+    private static final int SECONDS = 60;
+
+    public static final void main(String args[]) throws Exception {
+        int sampleCount = (int)SAMPLE_RATE * SECONDS;
+        byte pcm[] = new byte[sampleCount * 4];
+        for (int i = 0; i < sampleCount; i++) {
+            short left = (short)(Math.sin(2.0 * Math.PI * 80.0 * i / SAMPLE_RATE) * 16000);
+            short right = (short)(Math.sin(2.0 * Math.PI * 8000.0 * i / SAMPLE_RATE) * 16000);
+            pcm[i * 4] = (byte)left;
+            pcm[i * 4 + 1] = (byte)(left >> 8);
+            pcm[i * 4 + 2] = (byte)right;
+            pcm[i * 4 + 3] = (byte)(right >> 8);
+        }
+
+        PiGlowAudioAnalyzer analyzer = new PiGlowAudioAnalyzer(new ByteArrayInputStream(pcm), SAMPLE_RATE, 2);
+        long start = System.nanoTime();
+        analyzer.start();
+        while (!analyzer.isFinished())
+            Thread.sleep(10);
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d hops in %.2f seconds: %.0f hops/second (%.0fx real time)%n", analyzer.getHopCount(), seconds,
+                          analyzer.getHopCount() / seconds, SECONDS / seconds);
+
+        for (PiGlowArm arm : PiGlowArm.values()) {
+            System.out.print(arm + ":");
+            for (PiGlowColor color : PiGlowColor.values())
+                System.out.print(" " + color + "=" + analyzer.getLevel(arm, color));
+
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs one blink definition on a fleet of boards started out of phase, checks that every board matches a blinker started
+ * at the same time, and compares the memory used by the fleet with that of one blinker per board.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JBlinkerFleetExample {
+    private static final int BOARDS = 200;
+    private static final int PHASE_MILLIS = 37;
+    private static final long RUN_MILLIS = 20000;
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static final void main(String args[]) throws Exception {
+        PiGlowLED.setGammaCorrectionMode(false);
+        PiGlowBlinkerDefinition definition = new PiGlowBlinkerDefinition(50, 200, 500, 0, 250, 10, true, true, 20, PiGlowLED.armLEDs(PiGlowArm.TOP));
+
+        PiGlowBlinkerFleet fleet = new PiGlowBlinkerFleet(definition, BOARDS);
+        for (int board = 0; board < BOARDS; board++)
+            fleet.start(board, board * PHASE_MILLIS);
+
+        byte frames[] = new byte[BOARDS * PiGlow.PIGLOW_LED_COUNT];
+        int mismatches = 0;
+        long changes = 0;
+        long start = System.nanoTime();
+        for (long now = 0; now <= RUN_MILLIS; now += 5)
+            changes += fleet.stepAll(now, frames);
+        double stepMillis = (System.nanoTime() - start) / 1e6;
+
+        //
+        // Replay every board with its own blinker and compare the final frames
+        //
+        int address = PiGlowLED.armLEDs(PiGlowArm.TOP).get(0).getAddress();
+        for (int board = 0; board < BOARDS; board++) {
+            PiGlowBlinker blinker = new PiGlowBlinker(definition);
+            PiGlowLED.findLED(address).setIntensity(0);
+            blinker.initialize(board * PHASE_MILLIS);
+            for (long now = board * PHASE_MILLIS; now <= RUN_MILLIS; now += 5) {
+                long millis = blinker.nextStepMillis(now);
+                if (millis != PiGlowAnimation.ANIMATION_COMPLETE && millis <= 0)
+                    blinker.executeNextStep(now);
+            }
+
+            if ((frames[board * PiGlow.PIGLOW_LED_COUNT + address - 1] & 0xFF) != PiGlowLED.findLED(address).getIntensity())
+                mismatches++;
+        }
+
+        System.out.printf("%d boards, %d board changes in %.1f ms, %s%n", BOARDS, changes, stepMillis, mismatches == 0 ? "all boards match" : mismatches + " mismatches");
+
+        long before = usedMemory();
+        List<PiGlowBlinker> blinkers = new ArrayList<>();
+        for (int board = 0; board < BOARDS; board++)
+            blinkers.add(new PiGlowBlinker(50, 200, 500, 0, 250, 10, true, true, 20, PiGlowLED.armLEDs(PiGlowArm.TOP)));
+        long blinkerBytes = usedMemory() - before;
+
+        before = usedMemory();
+        PiGlowBlinkerFleet other = new PiGlowBlinkerFleet(definition, BOARDS);
+        long fleetBytes = usedMemory() - before;
+
+        System.out.printf("%d blinkers use about %d bytes, a fleet of %d boards about %d bytes%n", blinkers.size(), blinkerBytes, other.getBoardCount(), fleetBytes);
+    }
+}
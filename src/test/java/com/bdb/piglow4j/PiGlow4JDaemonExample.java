@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.bdb.piglow4j.net.PiGlowClient;
+import com.bdb.piglow4j.net.PiGlowDaemon;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Runs the PiGlow daemon on the headless simulator and measures the round trip latency of the client commands.
+ * Requires Java 16 or later.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JDaemonExample {
+    private static final int COMMANDS = 200000;
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        Path path = Files.createTempDirectory("piglow4j").resolve("piglow.sock");
+        PiGlowDaemon daemon = new PiGlowDaemon(pg, path);
+        daemon.start();
+
+        try (PiGlowClient client = PiGlowClient.connect(path)) {
+            for (int i = 0; i < COMMANDS / 10; i++)
+                client.ping();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < COMMANDS; i++)
+                client.ping();
+
+            long pingNanos = (System.nanoTime() - start) / COMMANDS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < COMMANDS; i++) {
+                PiGlowLED.findLED(i % PiGlow.PIGLOW_LED_COUNT + 1).setIntensity(i & 0xFF);
+                client.updateLEDs();
+            }
+
+            long frameNanos = (System.nanoTime() - start) / COMMANDS;
+            System.out.printf("Ping: %.1f us, frame: %.1f us, %d device commits%n",
+                              pingNanos / 1000.0, frameNanos / 1000.0, headless.getDevice().getCommitCount());
+        }
+
+        daemon.stop();
+        Files.deleteIfExists(path.getParent());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+import com.bdb.piglow4j.net.PiGlowDmxReceiver;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderSwing;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Drives a PiGlow through the DMX receiver using a packet generator on the loopback interface.
+ * With no arguments the headless simulator is used and the packet rate is reported, with "gui" the Swing simulator
+ * shows a slow chase.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JDmxExample {
+    private static final int UNIVERSE = 1;
+    private static final int FIRST_CHANNEL = 10;
+
+    /**
+     * Generates Art-Net and E1.31 DMX packets.
+     */
+    static final class PacketGenerator {
+        private final ByteBuffer artNet = ByteBuffer.allocateDirect(18 + 512);
+        private final ByteBuffer e131 = ByteBuffer.allocateDirect(126 + 512);
+        private final DatagramChannel channel;
+        private final InetSocketAddress target;
+        private int sequence;
+
+        PacketGenerator(InetSocketAddress target) throws IOException {
+            this.target = target;
+            channel = DatagramChannel.open();
+
+            artNet.put("Art-Net\0".getBytes(StandardCharsets.US_ASCII));
+            artNet.put((byte)0x00).put((byte)0x50);             // OpDmx, little endian
+            artNet.put((byte)0).put((byte)14);                  // Protocol version
+            artNet.put((byte)0).put((byte)0);                   // Sequence, physical
+            artNet.put((byte)(UNIVERSE & 0xFF)).put((byte)(UNIVERSE >> 8));
+            artNet.putShort((short)512);
+
+            e131.putShort((short)0x0010).putShort((short)0);    // Preamble and postamble size
+            e131.put("ASC-E1.17\0\0\0".getBytes(StandardCharsets.US_ASCII));
+            e131.putShort((short)(0x7000 | (e131.capacity() - 16)));
+            e131.putInt(0x4);                                   // Root vector
+            e131.put(new byte[16]);                             // CID
+            e131.putShort((short)(0x7000 | (e131.capacity() - 38)));
+            e131.putInt(0x2);                                   // Framing vector
+            e131.put(new byte[64]);                             // Source name
+            e131.put((byte)100);                                // Priority
+            e131.putShort((short)0);                            // Synchronization address
+            e131.put((byte)0).put((byte)0);                     // Sequence, options
+            e131.putShort((short)UNIVERSE);
+            e131.putShort((short)(0x7000 | (e131.capacity() - 115)));
+            e131.put((byte)0x2).put((byte)0xA1);                // DMP vector, address type
+            e131.putShort((short)0).putShort((short)1);         // First address, increment
+            e131.putShort((short)513);                          // Count including the start code
+            e131.put((byte)0);                                  // Start code
+        }
+
+        void sendArtNet(int value) throws IOException {
+            artNet.put(12, (byte)++sequence);
+            send(artNet, 18, value);
+        }
+
+        void sendE131(int value) throws IOException {
+            e131.put(111, (byte)++sequence);
+            send(e131, 126, value);
+        }
+
+        private void send(ByteBuffer packet, int dataOffset, int value) throws IOException {
+            for (int i = 0; i < PiGlow.PIGLOW_LED_COUNT; i++)
+                packet.put(dataOffset + FIRST_CHANNEL - 1 + i, (byte)((value + i * 14) & 0xFF));
+
+            packet.clear();
+            channel.send(packet, target);
+        }
+    }
+
+    public static final void main(String args[]) throws Exception {
+        boolean gui = args.length > 0 && args[0].equals("gui");
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        if (gui)
+            I2CFactory.setFactory(new I2CFactoryProviderSwing());
+        else
+            I2CFactory.setFactory(headless);
+
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        InetSocketAddress bindAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        PiGlowDmxReceiver receiver = new PiGlowDmxReceiver(pg, bindAddress, UNIVERSE, FIRST_CHANNEL, PiGlowLED.allLEDs());
+        receiver.start();
+        PacketGenerator generator = new PacketGenerator(new InetSocketAddress(InetAddress.getLoopbackAddress(), receiver.getLocalPort()));
+
+        if (gui) {
+            for (int i = 0; i < 2000; i++) {
+                if (i % 2 == 0)
+                    generator.sendArtNet(i);
+                else
+                    generator.sendE131(i);
+
+                Thread.sleep(25);
+            }
+        }
+        else {
+            int packets = 500000;
+            long start = System.nanoTime();
+            for (int i = 0; i < packets; i++) {
+                if (i % 2 == 0)
+                    generator.sendArtNet(i);
+                else
+                    generator.sendE131(i);
+            }
+
+            Thread.sleep(200);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Sent %d packets, received %d in %.2f seconds (%.0f packets/s), %d frames written, %d device writes%n",
+                              packets, receiver.getPacketCount(), seconds, receiver.getPacketCount() / seconds,
+                              receiver.getFrameCount(), headless.getDevice().getWriteCount());
+
+            //
+            // A failing device must not stop the receiver
+            //
+            headless.getDevice().setFailing(true);
+            generator.sendArtNet(1);
+            Thread.sleep(50);
+            headless.getDevice().setFailing(false);
+            long frames = receiver.getFrameCount();
+            generator.sendArtNet(2);
+            Thread.sleep(50);
+            System.out.println("Frames written after a device failure: " + (receiver.getFrameCount() - frames));
+        }
+
+        receiver.stop();
+        pg.allOff();
+    }
+}
@@ -0,0 +1,64 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+/**
+ * Measures the time of a fleet renderer tick for an increasing number of simulated boards, rendering on one thread, on
+ * the fork-join pool, and with the default threshold choosing between the two.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JFleetRendererBenchmark {
+    private static final int TICKS = 2000;
+    private static final int BOARD_COUNTS[] = {1, 4, 16, 64, 256, 1024};
+
+    private static long writes;
+
+    private static double measure(int boards, int threshold) {
+        PiGlowFleetRenderer renderer = new PiGlowFleetRenderer(10);
+        renderer.setParallelThreshold(threshold);
+        PiGlowTimeFunction functions[] = {
+            new PiGlowBlinker(0, 0, 510, 0, 255, 51, true, true, 1000000, PiGlowLED.armLEDs(PiGlowArm.TOP)).asTimeFunction(),
+            new PiGlowBlinker(0, 0, 340, 0, 255, 17, true, true, 1000000, PiGlowLED.armLEDs(PiGlowArm.LEFT)).asTimeFunction(),
+            new PiGlowBlinker(0, 0, 300, 0, 255, 15, true, true, 1000000, PiGlowLED.armLEDs(PiGlowArm.RIGHT)).asTimeFunction()
+        };
+
+        for (int i = 0; i < boards; i++)
+            renderer.addBoard((frame, offset) -> writes++, functions);
+
+        for (int i = 0; i < TICKS / 4; i++)
+            renderer.tick(i * 10);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TICKS; i++)
+            renderer.tick((TICKS + i) * 10);
+
+        return (System.nanoTime() - start) / 1000.0 / TICKS;
+    }
+
+    public static final void main(String args[]) throws Exception {
+        System.out.printf("Parallelism %d%n", java.util.concurrent.ForkJoinPool.getCommonPoolParallelism());
+        System.out.printf("%8s %14s %14s %14s%n", "Boards", "Serial us", "Parallel us", "Default us");
+        for (int boards : BOARD_COUNTS) {
+            double serial = measure(boards, Integer.MAX_VALUE);
+            double parallel = measure(boards, 0);
+            double automatic = measure(boards, PiGlowFleetRenderer.DEFAULT_PARALLEL_THRESHOLD);
+            System.out.printf("%8d %14.1f %14.1f %14.1f%n", boards, serial, parallel, automatic);
+        }
+        System.out.printf("%d frames written%n", writes);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bdb.piglow4j.net.PiGlowFrameServer;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Connects hundreds of clients to a frame server on the headless simulator, checks the priority and HTP merging and
+ * reports the message rate.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JFrameServerExample {
+    private static final int CLIENTS = 300;
+    private static final long RUN_MILLIS = 3000;
+
+    private static void send(SocketChannel channel, int priority, int address, int value) throws IOException {
+        ByteBuffer message = ByteBuffer.allocate(PiGlowFrameServer.HEADER_SIZE + 1);
+        int mask = 1 << (address - 1);
+        message.put((byte)PiGlowFrameServer.SET).put((byte)priority);
+        message.put((byte)(mask >> 16)).put((byte)(mask >> 8)).put((byte)mask);
+        message.put((byte)value);
+        message.flip();
+        while (message.hasRemaining())
+            channel.write(message);
+    }
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlowLED.setGammaCorrectionMode(false);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        PiGlowFrameServer server = new PiGlowFrameServer(pg, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.setTickMillis(10);
+        server.start();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+
+        //
+        // A low priority client with a high value and a high priority client with a low value
+        //
+        SocketChannel low = SocketChannel.open(address);
+        SocketChannel high = SocketChannel.open(address);
+        send(low, 10, 1, 200);
+        send(high, 100, 1, 50);
+        Thread.sleep(100);
+        System.out.println("PRIORITY merge: " + headless.getDevice().getCommittedIntensity(1) + " (expected 50)");
+        server.setMergeMode(PiGlowFrameServer.MergeMode.HTP);
+        send(high, 100, 1, 40);
+        Thread.sleep(100);
+        System.out.println("HTP merge:      " + headless.getDevice().getCommittedIntensity(1) + " (expected 200)");
+        low.close();
+        high.close();
+        server.setMergeMode(PiGlowFrameServer.MergeMode.PRIORITY);
+
+        //
+        // Many clients sending as fast as they can
+        //
+        server.setClientRateLimit(1000);
+        List<SocketChannel> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++)
+            clients.add(SocketChannel.open(address));
+
+        Thread.sleep(100);
+        long start = System.currentTimeMillis();
+        int n = 0;
+        while (System.currentTimeMillis() - start < RUN_MILLIS) {
+            for (int i = 0; i < clients.size(); i++)
+                send(clients.get(i), i & 0xFF, (n + i) % PiGlow.PIGLOW_LED_COUNT + 1, n & 0xFF);
+
+            n++;
+        }
+
+        Thread.sleep(100);
+        double seconds = (System.currentTimeMillis() - start) / 1000.0;
+        System.out.printf("%d clients, %d messages (%.0f/s), %d dropped by the rate limit, %d frames%n",
+                          server.getClientCount(), server.getMessageCount(), server.getMessageCount() / seconds,
+                          server.getDroppedMessageCount(), server.getFrameCount());
+
+        for (SocketChannel client : clients)
+            client.close();
+
+        server.stop();
+    }
+}
@@ -0,0 +1,130 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bdb.piglow4j.show.PiGlowShowWatcher;
+import com.bdb.piglow4j.sim.I2CDeviceHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Repeatedly swaps two sets of animations with a crossfade on the headless simulator while measuring the largest gap
+ * between animation steps, then reloads a show file that is edited while it plays.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JHotReloadExample {
+    private static final int SWAPS = 20;
+    private static final long SWAP_INTERVAL = 300;
+    private static final long CROSSFADE = 200;
+
+    private static final long STEP_MILLIS = 20;
+    private static long lastStepTime;
+    private static long maxGap;
+
+    /**
+     * Animation that records the largest gap between steps, including the gaps across swaps.
+     */
+    private static final class GapProbe extends PiGlowAnimation {
+        private long nextStepTime;
+
+        @Override
+        public void initialize(long now) {
+            //
+            // Carry the phase over from the probe that is being replaced
+            //
+            nextStepTime = lastStepTime > 0 ? lastStepTime + STEP_MILLIS : now + STEP_MILLIS;
+        }
+
+        @Override
+        public long nextStepMillis(long now) {
+            return nextStepTime - now;
+        }
+
+        @Override
+        public void executeNextStep(long now) {
+            if (now < nextStepTime)
+                return;
+
+            if (lastStepTime > 0)
+                maxGap = Math.max(maxGap, now - lastStepTime);
+
+            lastStepTime = now;
+            nextStepTime += STEP_MILLIS;
+        }
+    }
+
+    private static List<PiGlowAnimation> animations(boolean lowToHigh) {
+        return Arrays.asList(new PiGlowBlinker(0, 0, 1020, 0, 255, 51, lowToHigh, true, 1000, PiGlowLED.allLEDs()), new GapProbe());
+    }
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        I2CDeviceHeadless device = headless.getDevice();
+        PiGlowAnimator animator = new PiGlowAnimator(pg);
+        animator.swapAnimations(animations(true), 0);
+        animator.start();
+        for (int swap = 0; swap < SWAPS; swap++) {
+            Thread.sleep(SWAP_INTERVAL);
+            animator.swapAnimations(animations(swap % 2 == 1), CROSSFADE);
+        }
+        Thread.sleep(SWAP_INTERVAL);
+
+        System.out.printf("%d swaps with a %d ms crossfade, longest gap between %d ms steps %d ms%n", SWAPS, CROSSFADE, STEP_MILLIS, maxGap);
+
+        Path show = Files.createTempFile("piglow4j", ".show");
+        Files.write(show, "0 set all 10\n".getBytes(StandardCharsets.UTF_8));
+        try (PiGlowShowWatcher watcher = new PiGlowShowWatcher(animator, show, 100)) {
+            watcher.start();
+            Thread.sleep(200);
+            System.out.println("Before edit LED 1 is " + device.getCommittedIntensity(1));
+            Files.write(show, "0 set all 200\n1s set all 200\n".getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < 50 && watcher.getReloadCount() == 0; i++)
+                Thread.sleep(100);
+
+            Thread.sleep(300);
+            System.out.println("After " + watcher.getReloadCount() + " reload LED 1 is " + device.getCommittedIntensity(1));
+
+            //
+            // Once the show has ended the edited show must play again from the start instead of from the end
+            //
+            Thread.sleep(1000);
+            Files.write(show, "0 set all 100\n1s set all 20\n".getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < 50 && watcher.getReloadCount() == 1; i++)
+                Thread.sleep(100);
+
+            Thread.sleep(300);
+            int first = device.getCommittedIntensity(1);
+            Thread.sleep(1000);
+            System.out.println("After reloading an ended show LED 1 is " + first + ", then " + device.getCommittedIntensity(1));
+        }
+
+        Files.delete(show);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,69 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import com.bdb.piglow4j.sim.I2CDeviceHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Runs a sequence that only changes every 250 milliseconds through each interpolation curve on the headless simulator,
+ * printing the intensity written to one LED and the number of frames written.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JInterpolationExample {
+    private static final int KEYFRAME_INTERVAL = 250;
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        I2CDeviceHeadless device = headless.getDevice();
+        PiGlowLED.setGammaCorrectionMode(false);
+        PiGlowLED led = PiGlowLED.findLED(1);
+
+        for (PiGlowInterpolator.Curve curve : new PiGlowInterpolator.Curve[]{null, PiGlowInterpolator.Curve.LINEAR, PiGlowInterpolator.Curve.EASE_IN_OUT}) {
+            pg.allOff();
+            PiGlowSequence sequence = new PiGlowSequence(1);
+            sequence.addSequence(0, led, 0);
+            sequence.addSequence(KEYFRAME_INTERVAL, led, 200);
+            sequence.addSequence(KEYFRAME_INTERVAL, led, 50);
+            sequence.addSequence(KEYFRAME_INTERVAL, led, 250);
+
+            PiGlowAnimator animator = new PiGlowAnimator(pg);
+            if (curve != null)
+                animator.setInterpolator(new PiGlowInterpolator(curve, KEYFRAME_INTERVAL, 20));
+
+            animator.addAnimation(sequence);
+            long commits = device.getCommitCount();
+            animator.start();
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 22; i++) {
+                sb.append(String.format(" %3d", device.getCommittedIntensity(1)));
+                Thread.sleep(50);
+            }
+            animator.waitForTermination(2000);
+            System.out.printf("%-11s %3d frames:%s%n", curve == null ? "NONE" : curve, device.getCommitCount() - commits, sb);
+        }
+
+        System.exit(0);
+    }
+}
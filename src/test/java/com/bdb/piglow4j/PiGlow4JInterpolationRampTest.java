@@ -0,0 +1,70 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import com.bdb.piglow4j.transport.PiGlowMemoryTransport;
+
+/**
+ * Feeds the interpolator a ramp that changes on every frame, stepping the animator on a simulated clock, and checks
+ * that the interpolated output follows the ramp instead of waiting for it to stop changing.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JInterpolationRampTest {
+    private static final int FRAME_INTERVAL = 20;
+    private static final int RAMP_MILLIS = 1020;
+
+    private static int[] run(PiGlowInterpolator.Curve curve) {
+        PiGlowMemoryTransport transport = new PiGlowMemoryTransport();
+        PiGlowLED led = PiGlowLED.findLED(1);
+        PiGlowAnimator animator = new PiGlowAnimator(new PiGlow(transport));
+        if (curve != null)
+            animator.setInterpolator(new PiGlowInterpolator(curve, 100, FRAME_INTERVAL));
+
+        animator.addAnimation(new PiGlowBlinker(0, 0, RAMP_MILLIS, 0, 255, 51, true, false, 1, PiGlowLED.allLEDs()));
+        for (PiGlowAnimation animation : animator.getAnimations())
+            animation.initialize(0);
+
+        int written[] = new int[(RAMP_MILLIS + 200) / FRAME_INTERVAL];
+        for (int i = 0; i < written.length; i++) {
+            animator.step(i * FRAME_INTERVAL);
+            written[i] = transport.getCommittedIntensity(led.getAddress());
+        }
+
+        return written;
+    }
+
+    public static final void main(String args[]) throws Exception {
+        PiGlowLED.setGammaCorrectionMode(false);
+        boolean failed = false;
+        for (PiGlowInterpolator.Curve curve : new PiGlowInterpolator.Curve[]{null, PiGlowInterpolator.Curve.LINEAR, PiGlowInterpolator.Curve.EASE_IN_OUT}) {
+            int written[] = run(curve);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < written.length; i += 5)
+                sb.append(String.format(" %3d", written[i]));
+
+            //
+            // Halfway through the ramp the output must have moved, and shortly after the ramp it must have reached the end
+            //
+            boolean following = written[written.length / 2] > 64 && written[written.length - 1] == 255;
+            failed |= !following;
+            System.out.printf("%-11s %s:%s%n", curve == null ? "NONE" : curve, following ? "ok    " : "FROZEN", sb);
+        }
+
+        System.exit(failed ? 1 : 0);
+    }
+}
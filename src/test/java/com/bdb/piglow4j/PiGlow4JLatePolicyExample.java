@@ -0,0 +1,82 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.util.Arrays;
+
+/**
+ * Steps a blinker and a sequence against a simulated clock that stalls for 350 milliseconds and prints the intensities
+ * produced by each late policy. With SKIP and CATCH_UP the animations finish at the same time as they would have
+ * without the stall, with STRETCH they finish late.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JLatePolicyExample {
+    private static final long TICK = 50;
+    private static final long STALL_START = 200;
+    private static final long STALL_END = 550;
+
+    private static void run(PiGlowLatePolicy policy, PiGlowAnimation animation, PiGlowLED led) {
+        animation.setLatePolicy(policy);
+        animation.initialize(0);
+        StringBuilder sb = new StringBuilder();
+        long skipped = 0;
+        long now = 0;
+        long end = -1;
+        while (now < 3000) {
+            long next = animation.nextStepMillis(now);
+            if (next == PiGlowAnimation.ANIMATION_COMPLETE) {
+                end = now;
+                break;
+            }
+
+            if (next <= 0) {
+                animation.executeNextStep(now);
+                skipped += animation.takeSkippedSteps();
+                sb.append(String.format(" %d@%d", led.getIntensity(), now));
+                continue;
+            }
+
+            //
+            // The clock only advances in ticks and nothing runs during the stall
+            //
+            now += Math.max(TICK, next - next % TICK);
+            if (now > STALL_START && now < STALL_END)
+                now = STALL_END;
+        }
+
+        System.out.printf("  %-8s skipped %2d, complete at %4d ms:%s%n", policy, skipped, end, sb);
+    }
+
+    public static final void main(String args[]) {
+        PiGlowLED.setGammaCorrectionMode(false);
+        PiGlowLED led = PiGlowLED.findLED(1);
+
+        System.out.println("Blinker, 4 steps of 50 ms up and down, 2 repetitions");
+        for (PiGlowLatePolicy policy : PiGlowLatePolicy.values())
+            run(policy, new PiGlowBlinker(0, 0, 200, 0, 200, 4, true, true, 2, Arrays.asList(led)), led);
+
+        System.out.println("Sequence of 3 steps 100 ms apart, 3 repetitions");
+        for (PiGlowLatePolicy policy : PiGlowLatePolicy.values()) {
+            PiGlowSequence sequence = new PiGlowSequence(3);
+            sequence.addSequence(100, led, 10);
+            sequence.addSequence(100, led, 20);
+            sequence.addSequence(100, led, 30);
+            run(policy, sequence, led);
+        }
+    }
+}
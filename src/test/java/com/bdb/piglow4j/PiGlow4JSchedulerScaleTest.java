@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Measures the tick jitter of many animators sharing one scheduler on the headless simulator.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JSchedulerScaleTest {
+    private static final long STEP_MILLIS = 50;
+    private static final long RUN_MILLIS = 3000;
+
+    /**
+     * Animation that records how late each of its steps run.
+     */
+    private static final class JitterProbe extends PiGlowAnimation {
+        private final long lateness[] = new long[(int)(RUN_MILLIS / STEP_MILLIS) + 2];
+        private final PiGlowLED led;
+        private long nextStepTime;
+        private long endTime;
+        private int count;
+
+        JitterProbe(PiGlowLED led) {
+            this.led = led;
+        }
+
+        @Override
+        public void initialize(long now) {
+            nextStepTime = now + STEP_MILLIS;
+            endTime = now + RUN_MILLIS;
+            count = 0;
+        }
+
+        @Override
+        public long nextStepMillis(long now) {
+            if (nextStepTime > endTime || count >= lateness.length)
+                return ANIMATION_COMPLETE;
+            else
+                return nextStepTime - now;
+        }
+
+        @Override
+        public void executeNextStep(long now) {
+            if (now < nextStepTime)
+                return;
+
+            lateness[count++] = now - nextStepTime;
+            led.setIntensity(count & 0xFF);
+            nextStepTime += STEP_MILLIS;
+        }
+    }
+
+    public static final void main(String args[]) throws InterruptedException {
+        I2CFactory.setFactory(new I2CFactoryProviderHeadless());
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ScheduledExecutorService scheduler = PiGlowAnimator.createScheduler(threads);
+        System.out.printf("%d scheduler threads, %d ms steps for %d ms%n", threads, STEP_MILLIS, RUN_MILLIS);
+        System.out.println("Animators   Ticks      Mean(ms)  p99(ms)  Max(ms)");
+
+        for (int animatorCount : new int[]{10, 100, 1000, 10000}) {
+            List<PiGlowAnimator> animators = new ArrayList<>();
+            List<JitterProbe> probes = new ArrayList<>();
+            for (int i = 0; i < animatorCount; i++) {
+                JitterProbe probe = new JitterProbe(PiGlowLED.allLEDs().get(i % PiGlow.PIGLOW_LED_COUNT));
+                PiGlowAnimator animator = new PiGlowAnimator(pg, scheduler);
+                animator.addAnimation(probe);
+                animators.add(animator);
+                probes.add(probe);
+            }
+
+            animators.forEach((animator) -> animator.start());
+            for (PiGlowAnimator animator : animators)
+                animator.waitForTermination(RUN_MILLIS * 4);
+
+            int total = probes.stream().mapToInt((probe) -> probe.count).sum();
+            long samples[] = new long[total];
+            int n = 0;
+            for (JitterProbe probe : probes) {
+                System.arraycopy(probe.lateness, 0, samples, n, probe.count);
+                n += probe.count;
+            }
+
+            Arrays.sort(samples);
+            double mean = Arrays.stream(samples).average().orElse(0.0);
+            long p99 = total == 0 ? 0 : samples[(int)(total * 0.99)];
+            long max = total == 0 ? 0 : samples[total - 1];
+            System.out.printf("%9d  %8d  %9.2f  %7d  %7d%n", animatorCount, total, mean, p99, max);
+        }
+
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import com.bdb.piglow4j.net.PiGlowSharedFrame;
+import com.bdb.piglow4j.sim.I2CDeviceHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Measures the latency from a producer writing the shared frame until the frame is committed to the headless simulator.
+ * The producer and consumer map the file separately, as they would in different processes.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JSharedFrameBenchmark {
+    private static final int FRAMES = 20000;
+    private static final long POLL_NANOS = 20000;
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        Path shm = Paths.get("/dev/shm");
+        Path path = Files.isDirectory(shm) ? Files.createTempFile(shm, "piglow4j", ".frame") : Files.createTempFile("piglow4j", ".frame");
+        Files.delete(path);
+        I2CDeviceHeadless device = headless.getDevice();
+
+        try (PiGlowSharedFrame consumer = PiGlowSharedFrame.open(path);
+             PiGlowSharedFrame producer = PiGlowSharedFrame.open(path)) {
+            consumer.start(pg, POLL_NANOS);
+            byte frame[] = new byte[PiGlow.PIGLOW_LED_COUNT];
+            long latencies[] = new long[FRAMES];
+            for (int i = 0; i < FRAMES; i++) {
+                int value = (i % 255) + 1;
+                Arrays.fill(frame, (byte)value);
+                long start = System.nanoTime();
+                producer.write(frame, 0);
+                while (device.getCommittedIntensity(PiGlow.PIGLOW_LED_COUNT) != value)
+                    Thread.yield();
+
+                latencies[i] = System.nanoTime() - start;
+            }
+
+            //
+            // A frame that could not be written is written once the device works again, without a new frame
+            //
+            device.setFailing(true);
+            Arrays.fill(frame, (byte)0);
+            producer.write(frame, 0);
+            Thread.sleep(100);
+            device.setFailing(false);
+            for (int i = 0; i < 100 && device.getCommittedIntensity(PiGlow.PIGLOW_LED_COUNT) != 0; i++)
+                Thread.sleep(10);
+
+            System.out.println("Frame written after a device failure: " + (device.getCommittedIntensity(PiGlow.PIGLOW_LED_COUNT) == 0));
+
+            consumer.stop();
+            Arrays.sort(latencies);
+            System.out.printf("%d frames, poll interval %d us: median %.1f us, p99 %.1f us, max %.1f us%n", FRAMES, POLL_NANOS / 1000,
+                              latencies[FRAMES / 2] / 1000.0, latencies[FRAMES * 99 / 100] / 1000.0, latencies[FRAMES - 1] / 1000.0);
+        }
+
+        Files.delete(path);
+    }
+}
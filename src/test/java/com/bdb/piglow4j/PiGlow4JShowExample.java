@@ -0,0 +1,118 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.text.ParseException;
+
+import com.bdb.piglow4j.show.PiGlowShow;
+import com.bdb.piglow4j.show.PiGlowShowCompiler;
+import com.bdb.piglow4j.sim.I2CDeviceHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Plays a short show on the headless simulator, reports a syntax error and measures how long a show with thousands of
+ * cues takes to compile.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JShowExample {
+    private static final String SHOW =
+        "# Pulse the white LEDs under a chase around the arms\n" +
+        "leds center white,blue\n" +
+        "loop 3s\n" +
+        "0 pulse center 0 64 1s\n" +
+        "layer chase\n" +
+        "0      set top 255\n" +
+        "+500ms off top\n" +
+        "+0     set right 255\n" +
+        "+500ms off right\n" +
+        "+0     set left 255\n" +
+        "+500ms off left\n" +
+        "1.5s   fade all 255 0 1s\n" +
+        "2.5s   blink top.red,left.red,right.red 0 255 100ms 5\n" +
+        "2.9s   off all\n";
+
+    private static final int CUES = 10000;
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        I2CDeviceHeadless device = headless.getDevice();
+        PiGlowShow show = PiGlowShowCompiler.compile(SHOW);
+        System.out.printf("Compiled %d cues in %d layers%n", show.getCueCount(), show.getLayerCount());
+
+        PiGlowAnimator animator = new PiGlowAnimator(pg);
+        animator.addAnimation(show);
+        animator.start();
+        for (int i = 0; i < 8; i++) {
+            Thread.sleep(400);
+            StringBuilder sb = new StringBuilder(String.format("%5d ms:", show.getShowTime()));
+            for (int address = 1; address <= PiGlow.PIGLOW_LED_COUNT; address++)
+                sb.append(String.format(" %3d", device.getCommittedIntensity(address)));
+
+            System.out.println(sb);
+        }
+        animator.stop();
+        animator.waitForTermination(1000);
+
+        try {
+            PiGlowShowCompiler.compile("0 set all 100\n1s fade top 0 300 1s\n");
+        }
+        catch (ParseException e) {
+            System.out.println("Expected error on line " + e.getErrorOffset() + ": " + e.getMessage());
+        }
+
+        //
+        // A pulse with an odd period, up and reversed, must stay within its intensities on every millisecond
+        //
+        PiGlowLED.setGammaCorrectionMode(false);
+        for (String pulse : new String[]{"frame 1\n0 pulse all 0 200 5ms\n", "frame 1\n0 pulse all 200 0 5ms\n"}) {
+            PiGlowShow odd = PiGlowShowCompiler.compile(pulse);
+            odd.initialize(0);
+            StringBuilder sb = new StringBuilder("Odd period pulse " + pulse.substring(pulse.indexOf("all") + 4).trim() + ":");
+            for (long now = 0; now < 10; now++) {
+                odd.executeNextStep(now);
+                sb.append(String.format(" %3d", PiGlowLED.findLED(1).getIntensity()));
+            }
+
+            System.out.println(sb);
+        }
+
+        StringBuilder large = new StringBuilder("loop 10:00\n");
+        for (int i = 0; i < CUES; i++) {
+            if (i % 1000 == 0)
+                large.append("layer l").append(i / 1000).append('\n');
+
+            large.append((i * 7919) % 600000).append("ms ").append(i % 4 == 0 ? "pulse" : "fade").append(' ')
+                 .append(i % 2 == 0 ? "top,3-5" : "red").append(" 0 ").append(i % 256).append(" 250ms\n");
+        }
+
+        String text = large.toString();
+        for (int i = 0; i < 100; i++)
+            PiGlowShowCompiler.compile(text);
+
+        long start = System.nanoTime();
+        PiGlowShow big = PiGlowShowCompiler.compile(text);
+        System.out.printf("Compiled %d cues in %.2f ms%n", big.getCueCount(), (System.nanoTime() - start) / 1e6);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,107 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.bdb.piglow4j.show.PiGlowShowFile;
+import com.bdb.piglow4j.show.PiGlowShowFilePlayer;
+import com.bdb.piglow4j.show.PiGlowShowFileWriter;
+import com.bdb.piglow4j.sim.I2CDeviceHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Writes a three hour show at 50 frames per second, then measures how long it takes to open, how long a random seek
+ * takes and plays part of it on the headless simulator. A blinker is also rendered offline to a show file.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JShowFileBenchmark {
+    private static final long LENGTH = 3 * 60 * 60 * 1000;
+    private static final long FRAME_INTERVAL = 20;
+    private static final int SEEKS = 100000;
+
+    private static int pattern(long time, int led) {
+        return (int)((time / FRAME_INTERVAL + led * 14) % 256);
+    }
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        Path path = Files.createTempFile("piglow4j", ".show");
+        long start = System.nanoTime();
+        byte frame[] = new byte[PiGlow.PIGLOW_LED_COUNT];
+        try (PiGlowShowFileWriter writer = new PiGlowShowFileWriter(path)) {
+            for (long time = 0; time < LENGTH; time += FRAME_INTERVAL) {
+                //
+                // Only a few LEDs change in each frame, as in most shows
+                //
+                for (int led = 0; led < frame.length; led++)
+                    if (led % 6 == (time / FRAME_INTERVAL) % 6)
+                        frame[led] = (byte)pattern(time, led);
+
+                writer.writeFrame(time, frame, 0);
+            }
+        }
+        System.out.printf("Wrote %d MB in %.0f ms%n", Files.size(path) >> 20, (System.nanoTime() - start) / 1e6);
+
+        System.gc();
+        long heapBefore = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        start = System.nanoTime();
+        PiGlowShowFile show = PiGlowShowFile.open(path);
+        System.out.printf("Opened %d frames, %d ms long, in %.2f ms%n", show.getFrameCount(), show.getLength(), (System.nanoTime() - start) / 1e6);
+
+        Random random = new Random(1);
+        start = System.nanoTime();
+        for (int i = 0; i < SEEKS; i++)
+            show.frameAt((long)(random.nextDouble() * LENGTH), frame);
+
+        System.out.printf("Random seek: %.1f us%n", (System.nanoTime() - start) / 1e3 / SEEKS);
+        System.gc();
+        long heapAfter = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        System.out.printf("Heap used by the open show: about %d KB%n", Math.max(0, heapAfter - heapBefore) >> 10);
+
+        I2CDeviceHeadless device = headless.getDevice();
+        PiGlowShowFilePlayer player = show.createPlayer();
+        player.setStartTime(LENGTH / 2);
+        PiGlowAnimator animator = new PiGlowAnimator(pg);
+        animator.addAnimation(player);
+        animator.start();
+        Thread.sleep(500);
+        animator.stop();
+        animator.waitForTermination(1000);
+        long time = player.getShowTime();
+        show.frameAt(time, frame);
+        System.out.printf("Played to %d ms, LED 1 is %d and should be %d%n", time, device.getCommittedIntensity(1), frame[0] & 0xFF);
+
+        try (PiGlowShowFileWriter writer = new PiGlowShowFileWriter(path)) {
+            writer.writeAnimation(new PiGlowBlinker(0, 1000, 0, 255, 10, PiGlowLED.armLEDs(PiGlowArm.TOP)), 0, 60000, FRAME_INTERVAL);
+        }
+        show = PiGlowShowFile.open(path);
+        System.out.printf("Rendered a blinker to %d frames, %d ms long, %d bytes%n", show.getFrameCount(), show.getLength(), Files.size(path));
+
+        Files.delete(path);
+        System.exit(0);
+    }
+}
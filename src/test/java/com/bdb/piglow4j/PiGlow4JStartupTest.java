@@ -0,0 +1,66 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.lang.management.ManagementFactory;
+
+import com.bdb.piglow4j.sim.I2CDeviceHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Measures the time from the start of the JVM to the first frame that is visible on the headless simulator. Run it in a
+ * new JVM for each measurement, optionally with -Dpiglow4j.i2c.bus=1 to skip the board detection.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JStartupTest {
+    public static final void main(String args[]) throws Exception {
+        long mainTime = System.currentTimeMillis();
+        long mainNanos = System.nanoTime();
+
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        long instanceNanos = System.nanoTime();
+        PiGlow.getInstance();
+        long cachedNanos = System.nanoTime() - instanceNanos;
+
+        PiGlowAnimator animator = new PiGlowAnimator(pg);
+        animator.addAnimation(new PiGlowOneShot(0, 255, PiGlowLED.allLEDs()));
+        animator.start();
+
+        I2CDeviceHeadless device = headless.getDevice();
+        int address = PiGlowLED.allLEDs().get(0).getAddress();
+        while (device.getCommittedIntensity(address) == 0)
+            Thread.yield();
+
+        long frameNanos = System.nanoTime();
+        animator.stop();
+
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.printf("Bus %d%n", PiGlow.getBusNumber());
+        System.out.printf("JVM start to main:        %5d ms%n", mainTime - jvmStart);
+        System.out.printf("main to getInstance:      %7.1f ms%n", (instanceNanos - mainNanos) / 1e6);
+        System.out.printf("cached getInstance:       %7.1f us%n", cachedNanos / 1e3);
+        System.out.printf("getInstance to frame:     %7.1f ms%n", (frameNanos - instanceNanos) / 1e6);
+        System.out.printf("JVM start to first frame: %5d ms%n", mainTime - jvmStart + (frameNanos - mainNanos) / 1000000);
+    }
+}
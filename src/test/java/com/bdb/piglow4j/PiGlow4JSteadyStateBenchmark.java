@@ -0,0 +1,104 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.lang.management.ManagementFactory;
+
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Measures how long the animator takes to reach its steady state step time on the headless simulator. Pass "warm" to
+ * run <code>PiGlowAnimator.warmUp()</code> first, and run the JVM with -XX:SharedArchiveFile=target/piglow4j.jsa after
+ * building with the appcds profile to measure the effect of the class data archive.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JSteadyStateBenchmark {
+    private static final int BATCH = 100;
+    private static final int BATCHES = 2000;
+    private static final int WINDOW = 20;
+
+    public static final void main(String args[]) throws Exception {
+        long mainTime = System.currentTimeMillis();
+        I2CFactory.setFactory(new I2CFactoryProviderHeadless());
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        long warmUpNanos = System.nanoTime();
+        long warmUpSteps = args.length > 0 && args[0].equals("warm") ? PiGlowAnimator.warmUp(1000) : 0;
+        warmUpNanos = System.nanoTime() - warmUpNanos;
+
+        PiGlowAnimator animator = new PiGlowAnimator(pg);
+        animator.addAnimation(new PiGlowBlinker(0, 0, 510, 0, 255, 51, true, true, Integer.MAX_VALUE, PiGlowLED.allLEDs()));
+        PiGlowSequence sequence = new PiGlowSequence(Integer.MAX_VALUE);
+        for (PiGlowLED led : PiGlowLED.armLEDs(PiGlowArm.LEFT))
+            sequence.addSequence(7, led, 200);
+        animator.addAnimation(sequence);
+        for (PiGlowAnimation animation : animator.getAnimations())
+            animation.initialize(0);
+
+        long firstStart = System.nanoTime();
+        animator.step(0);
+        long firstStep = System.nanoTime() - firstStart;
+        long firstFrameTime = System.currentTimeMillis();
+
+        long batchNanos[] = new long[BATCHES];
+        long now = 1;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < BATCH; i++)
+                animator.step(now++);
+
+            batchNanos[batch] = System.nanoTime() - start;
+        }
+
+        //
+        // The steady state is the mean of the last quarter of the batches, and it is reached with the first window of
+        // batches whose mean is within 25% of it
+        //
+        long steady = 0;
+        for (int batch = BATCHES * 3 / 4; batch < BATCHES; batch++)
+            steady += batchNanos[batch];
+        steady /= BATCHES - BATCHES * 3 / 4;
+
+        int reached = 0;
+        long window = 0;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            window += batchNanos[batch];
+            if (batch >= WINDOW)
+                window -= batchNanos[batch - WINDOW];
+
+            if (batch >= WINDOW - 1 && window / WINDOW <= steady * 5 / 4) {
+                reached = batch - WINDOW + 1;
+                break;
+            }
+        }
+
+        long elapsed = 0;
+        for (int batch = 0; batch < reached; batch++)
+            elapsed += batchNanos[batch];
+
+        System.out.printf("JVM start to first frame:  %d ms%n", firstFrameTime - ManagementFactory.getRuntimeMXBean().getStartTime());
+        System.out.printf("Warm-up:                   %d steps in %.0f ms%n", warmUpSteps, warmUpNanos / 1e6);
+        System.out.printf("First step:                %.1f us%n", firstStep / 1e3);
+        System.out.printf("Steady state step:         %.2f us%n", steady / 1e3 / BATCH);
+        System.out.printf("Time to steady state:      %d steps, %.1f ms of stepping%n", reached * BATCH, elapsed / 1e6);
+        System.out.printf("JVM start to main:         %d ms%n", mainTime - ManagementFactory.getRuntimeMXBean().getStartTime());
+    }
+}
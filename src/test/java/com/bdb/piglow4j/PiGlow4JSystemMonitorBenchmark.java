@@ -0,0 +1,91 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.bdb.piglow4j.monitor.PiGlowMetric;
+import com.bdb.piglow4j.monitor.PiGlowSystemMonitor;
+
+/**
+ * Checks the system monitor against the canned /proc files in the test resources, then measures the CPU time needed
+ * to sample the real /proc files.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JSystemMonitorBenchmark {
+    private static final int SAMPLES = 20000;
+    private static final int SAMPLE_RATE = 50;
+
+    /**
+     * Sample a copy of the first set of fixtures, replace them in place with the set from one second later and sample again.
+     */
+    private static void sampleFixtures(PiGlowMetric topMetric) throws Exception {
+        Path fixtures = Paths.get(PiGlow4JSystemMonitorBenchmark.class.getResource("/proc").toURI());
+        Path nextFixtures = Paths.get(PiGlow4JSystemMonitorBenchmark.class.getResource("/proc-next").toURI());
+        Path proc = Files.createTempDirectory("piglow4j-proc");
+        String files[] = {"stat", "meminfo", "net/dev", "diskstats"};
+        Files.createDirectory(proc.resolve("net"));
+        for (String file : files)
+            Files.copy(fixtures.resolve(file), proc.resolve(file));
+
+        try (PiGlowSystemMonitor monitor = new PiGlowSystemMonitor(proc, 20)) {
+            monitor.setNetworkFullScale(1000000);
+            monitor.setMetric(PiGlowArm.TOP, topMetric);
+            monitor.sample(0);
+            for (String file : files)
+                Files.write(proc.resolve(file), Files.readAllBytes(nextFixtures.resolve(file)));
+
+            monitor.sample(1000);
+            System.out.printf("Fixture %s: %.2f (expected %s)%n", topMetric, monitor.getValue(topMetric), topMetric == PiGlowMetric.CPU ? "0.50" : "0.40");
+            if (topMetric == PiGlowMetric.CPU) {
+                System.out.printf("Fixture MEMORY: %.2f (expected 0.75)%n", monitor.getValue(PiGlowMetric.MEMORY));
+                System.out.printf("Fixture NETWORK: %.2f (expected 0.50)%n", monitor.getValue(PiGlowMetric.NETWORK));
+            }
+        }
+
+        for (String file : files)
+            Files.delete(proc.resolve(file));
+
+        Files.delete(proc.resolve("net"));
+        Files.delete(proc);
+    }
+
+    public static final void main(String args[]) throws Exception {
+        sampleFixtures(PiGlowMetric.CPU);
+        sampleFixtures(PiGlowMetric.DISK);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try (PiGlowSystemMonitor monitor = new PiGlowSystemMonitor(20)) {
+            for (int i = 0; i < SAMPLES; i++)
+                monitor.sample(i);
+
+            long start = threads.getCurrentThreadCpuTime();
+            for (int i = 0; i < SAMPLES; i++)
+                monitor.sample(SAMPLES + i);
+
+            double micros = (threads.getCurrentThreadCpuTime() - start) / 1000.0 / SAMPLES;
+            System.out.printf("/proc: %.1f us CPU per sample, %.3f%% of a core at %d Hz%n", micros, micros * SAMPLE_RATE / 10000.0, SAMPLE_RATE);
+            for (PiGlowMetric metric : PiGlowMetric.values())
+                System.out.printf("/proc %s: %.2f%n", metric, monitor.getValue(metric));
+        }
+    }
+}
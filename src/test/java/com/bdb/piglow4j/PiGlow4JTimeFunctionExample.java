@@ -0,0 +1,86 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.bdb.piglow4j.show.PiGlowShowFile;
+import com.bdb.piglow4j.show.PiGlowShowFileWriter;
+
+/**
+ * Checks that the time functions of the blinker, sequence and one shot produce the same intensities as the animations
+ * at every millisecond, then renders an hour long blinker to a show file in parallel.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JTimeFunctionExample {
+    private static final long CHECK_MILLIS = 5000;
+
+    private static void compare(String name, PiGlowAnimation animation, PiGlowTimeFunction function) {
+        for (PiGlowLED led : PiGlowLED.allLEDs())
+            led.setIntensity(0);
+
+        animation.initialize(0);
+        int frame[] = new int[PiGlow.PIGLOW_LED_COUNT];
+        int mismatches = 0;
+        for (long time = 0; time <= CHECK_MILLIS; time++) {
+            long next = animation.nextStepMillis(time);
+            while (next != PiGlowAnimation.ANIMATION_COMPLETE && next <= 0) {
+                animation.executeNextStep(time);
+                next = animation.nextStepMillis(time);
+            }
+
+            Arrays.fill(frame, 0);
+            function.render(time, frame);
+            for (int i = 0; i < frame.length; i++)
+                if (PiGlowLED.findLED(i + 1).getIntensity() != frame[i])
+                    mismatches++;
+        }
+
+        System.out.printf("%-30s %s%n", name, mismatches == 0 ? "matches" : mismatches + " mismatches");
+    }
+
+    public static final void main(String args[]) throws Exception {
+        PiGlowLED.setGammaCorrectionMode(false);
+        PiGlowBlinker blinker = new PiGlowBlinker(100, 50, 400, 0, 200, 4, true, true, 5, PiGlowLED.armLEDs(PiGlowArm.TOP));
+        compare("Reversing blinker", blinker, blinker.asTimeFunction());
+        blinker = new PiGlowBlinker(0, 300, 250, 250, 0, 5, false, false, 4, PiGlowLED.colorLEDs(PiGlowColor.RED));
+        compare("High to low blinker", blinker, blinker.asTimeFunction());
+
+        PiGlowSequence sequence = new PiGlowSequence(4);
+        sequence.addSequence(100, PiGlowLED.armLEDs(PiGlowArm.LEFT), 100);
+        sequence.addSequence(0, PiGlowLED.colorLEDs(PiGlowColor.BLUE), 30);
+        sequence.addSequence(250, PiGlowLED.armLEDs(PiGlowArm.LEFT), 0);
+        sequence.addSequence(250, PiGlowLED.findLED(PiGlowArm.RIGHT, PiGlowColor.WHITE), 255);
+        compare("Sequence", sequence, sequence.asTimeFunction());
+
+        PiGlowOneShot oneShot = new PiGlowOneShot(1234, 77, PiGlowLED.allLEDs());
+        compare("One shot", oneShot, oneShot.asTimeFunction());
+
+        Path path = Files.createTempFile("piglow4j", ".show");
+        blinker = new PiGlowBlinker(0, 0, 1000, 0, 255, 51, true, true, 3600, PiGlowLED.allLEDs());
+        long start = System.nanoTime();
+        try (PiGlowShowFileWriter writer = new PiGlowShowFileWriter(path)) {
+            writer.writeTimeFunction(blinker.asTimeFunction(), 0, 3600 * 1000, 20);
+        }
+        PiGlowShowFile show = PiGlowShowFile.open(path);
+        System.out.printf("Rendered %d frames of a one hour blinker in %.0f ms%n", show.getFrameCount(), (System.nanoTime() - start) / 1e6);
+        Files.delete(path);
+    }
+}
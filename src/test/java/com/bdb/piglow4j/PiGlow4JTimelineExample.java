@@ -0,0 +1,82 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import com.bdb.piglow4j.sim.PiGlowTimeline;
+import com.bdb.piglow4j.sim.PiGlowTimelinePanel;
+import com.bdb.piglow4j.transport.PiGlowMemoryTransport;
+
+/**
+ * Runs an animator against an in-memory PiGlow whose frames are recorded by a timeline. The timeline is shown in a
+ * window, or when there is no display it is drawn to timeline.png.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JTimelineExample {
+    private static final int SECONDS = 5;
+
+    public static final void main(String args[]) throws Exception {
+        PiGlowTimeline timeline = new PiGlowTimeline(4096);
+        PiGlow pg = new PiGlow(timeline.wrap(new PiGlowMemoryTransport()));
+        pg.reset();
+
+        PiGlowAnimator animator = new PiGlowAnimator(pg);
+        animator.addAnimation(new PiGlowBlinker(0, 0, 1000, 0, 255, 51, true, true, Integer.MAX_VALUE, PiGlowLED.allLEDs()));
+        animator.addAnimation(new PiGlowBlinker(0, 0, 250, 0, 128, 16, true, false, Integer.MAX_VALUE, PiGlowLED.armLEDs(PiGlowArm.LEFT)));
+
+        PiGlowTimelinePanel panel = new PiGlowTimelinePanel(timeline, SECONDS);
+        if (!GraphicsEnvironment.isHeadless()) {
+            SwingUtilities.invokeLater(() -> {
+                JFrame frame = new JFrame("PiGlow Timeline");
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                frame.add(panel);
+                frame.pack();
+                frame.setVisible(true);
+            });
+            animator.start();
+            return;
+        }
+
+        //
+        // Without a display the panel is advanced by hand, using the same clock as the timeline
+        //
+        panel.setSize(panel.getPreferredSize());
+        panel.advance(System.nanoTime());
+        animator.start();
+        long end = System.nanoTime() + SECONDS * 1000000000L;
+        while (System.nanoTime() < end) {
+            Thread.sleep(20);
+            panel.advance(System.nanoTime());
+        }
+
+        animator.stop();
+        animator.waitForTermination(1000);
+
+        BufferedImage image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        panel.paint(image.createGraphics());
+        ImageIO.write(image, "png", new File("timeline.png"));
+        System.out.printf("%d frames recorded, chart written to timeline.png%n", timeline.getCount());
+    }
+}
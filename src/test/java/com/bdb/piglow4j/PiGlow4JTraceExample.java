@@ -0,0 +1,82 @@
+/* 
+ * Copyright (C) 2016 Bruce Beisel
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bdb.piglow4j;
+
+import com.bdb.piglow4j.sim.I2CDeviceHeadless;
+import com.bdb.piglow4j.sim.I2CFactoryProviderHeadless;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * Measures the cost of tracing an animator step, then runs an animator with a trace on the headless simulator and makes
+ * the device fail so that the trace is dumped to the log.
+ *
+ * @author Bruce Beisel
+ */
+public class PiGlow4JTraceExample {
+    private static final int STEPS = 2000000;
+
+    private static double measure(PiGlowAnimator animator, PiGlowTrace trace) {
+        animator.setTrace(trace);
+        for (long now = 0; now < STEPS / 4; now++)
+            animator.step(now);
+
+        long start = System.nanoTime();
+        for (long now = 0; now < STEPS; now++)
+            animator.step(now);
+
+        return (System.nanoTime() - start) / (double)STEPS;
+    }
+
+    public static final void main(String args[]) throws Exception {
+        I2CFactoryProviderHeadless headless = new I2CFactoryProviderHeadless();
+        I2CFactory.setFactory(headless);
+        PiGlow pg = PiGlow.getInstance();
+        if (pg == null)
+            System.exit(1);
+
+        PiGlowAnimator animator = new PiGlowAnimator(pg);
+        animator.addAnimation(new PiGlowBlinker(0, 0, 510, 0, 255, 51, true, true, Integer.MAX_VALUE, PiGlowLED.allLEDs()));
+        for (PiGlowAnimation animation : animator.getAnimations())
+            animation.initialize(0);
+
+        for (int i = 0; i < 3; i++) {
+            double plain = measure(animator, null);
+            double traced = measure(animator, new PiGlowTrace(4096));
+            System.out.printf("Step without trace %.0f ns, with trace %.0f ns%n", plain, traced);
+        }
+
+        //
+        // Run in real time for a while, then fail the device to get the trace dumped
+        //
+        PiGlowTrace trace = new PiGlowTrace(32);
+        animator = new PiGlowAnimator(pg);
+        animator.setTrace(trace);
+        animator.setFrameInterval(10);
+        animator.addAnimation(new PiGlowBlinker(0, 0, 510, 0, 255, 51, true, true, Integer.MAX_VALUE, PiGlowLED.allLEDs()));
+        animator.start();
+        Thread.sleep(200);
+
+        I2CDeviceHeadless device = headless.getDevice();
+        device.setFailing(true);
+        Thread.sleep(50);
+        device.setFailing(false);
+        Thread.sleep(100);
+        animator.stop();
+        animator.waitForTermination(1000);
+        System.out.printf("%d records made, last %d:%n%s", trace.getCount(), trace.getCapacity(), trace);
+    }
+}